@@ -2,9 +2,11 @@ package com.isdstore;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 // Entry point for the Backend
 @SpringBootApplication
+@EnableScheduling
 public class ISDStoreApplication {
     public static void main(String[] args) {
         SpringApplication.run(ISDStoreApplication.class, args);
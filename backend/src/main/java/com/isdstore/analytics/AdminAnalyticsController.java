@@ -0,0 +1,82 @@
+package com.isdstore.analytics;
+
+import com.isdstore.common.dto.DailySalesDTO;
+import com.isdstore.common.dto.TopProductDTO;
+import com.isdstore.config.ReplicaRoutingDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/analytics")
+public class AdminAnalyticsController {
+
+    private final SalesRollupService salesRollupService;
+    private final int defaultDays;
+    private final int maxDays;
+    private final int defaultLimit;
+    private final int maxLimit;
+
+    public AdminAnalyticsController(SalesRollupService salesRollupService,
+                                    @Value("${app.analytics.defaultDays}") int defaultDays,
+                                    @Value("${app.analytics.maxDays}") int maxDays,
+                                    @Value("${app.analytics.top.defaultLimit}") int defaultLimit,
+                                    @Value("${app.analytics.top.maxLimit}") int maxLimit) {
+        this.salesRollupService = salesRollupService;
+        this.defaultDays = defaultDays;
+        this.maxDays = maxDays;
+        this.defaultLimit = defaultLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    // Best sellers over the last `days` UTC days (today included), by revenue or by units
+    @GetMapping("/top-products")
+    public ResponseEntity<?> topProducts(@RequestParam(name = "days", required = false) Integer days,
+                                         @RequestParam(name = "limit", required = false) Integer limit,
+                                         @RequestParam(name = "by", defaultValue = "revenue") String by) {
+        SalesRollupService.Ranking ranking;
+        try {
+            ranking = SalesRollupService.Ranking.valueOf(by.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("by must be revenue or units");
+        }
+        int window = days == null ? defaultDays : Math.max(1, Math.min(days, maxDays));
+        int n = limit == null ? defaultLimit : Math.max(1, Math.min(limit, maxLimit));
+        List<TopProductDTO> top = ReplicaRoutingDataSource.onReplica(() -> salesRollupService.topProducts(window, n, ranking));
+        return ResponseEntity.ok(top);
+    }
+
+    // Daily revenue series for [from, to] (ISO dates, UTC days); defaults to the last `defaultDays` days
+    @GetMapping("/daily")
+    public ResponseEntity<?> daily(@RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                   @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        LocalDate end = to != null ? to : LocalDate.now(ZoneOffset.UTC);
+        LocalDate start = from != null ? from : end.minusDays(defaultDays - 1L);
+        if (start.isAfter(end)) return ResponseEntity.badRequest().body("from must not be after to");
+        if (ChronoUnit.DAYS.between(start, end) >= maxDays) {
+            return ResponseEntity.badRequest().body("At most " + maxDays + " days per request");
+        }
+        List<DailySalesDTO> series = ReplicaRoutingDataSource.onReplica(() -> salesRollupService.daily(start, end));
+        return ResponseEntity.ok(series);
+    }
+
+    // Counts orders placed before the rollups existed; safe to repeat
+    @PostMapping("/backfill")
+    public ResponseEntity<Map<String, Object>> startBackfill() {
+        boolean started = salesRollupService.startBackfill();
+        return ResponseEntity.status(started ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT).body(salesRollupService.backfillStatus());
+    }
+
+    @GetMapping("/backfill")
+    public Map<String, Object> backfillStatus() {
+        return salesRollupService.backfillStatus();
+    }
+}
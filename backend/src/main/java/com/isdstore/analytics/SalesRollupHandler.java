@@ -0,0 +1,31 @@
+package com.isdstore.analytics;
+
+import com.isdstore.orders.OrderEvents;
+import com.isdstore.outbox.OutboxEvent;
+import com.isdstore.outbox.OutboxHandler;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Adds each committed order to the sales rollups. Redeliveries are skipped by
+ * {@link SalesRollupService#apply}, which counts an order at most once.
+ */
+@Component
+public class SalesRollupHandler implements OutboxHandler {
+    private final SalesRollupService salesRollupService;
+
+    public SalesRollupHandler(SalesRollupService salesRollupService) {
+        this.salesRollupService = salesRollupService;
+    }
+
+    @Override
+    public String eventType() {
+        return OrderEvents.ORDER_CREATED;
+    }
+
+    @Override
+    public void handle(OutboxEvent event) {
+        salesRollupService.applyFromEvent(UUID.fromString(event.getPayload().path("orderId").asText()));
+    }
+}
@@ -0,0 +1,228 @@
+package com.isdstore.analytics;
+
+import com.isdstore.common.dto.DailySalesDTO;
+import com.isdstore.common.dto.TopProductDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Incrementally maintained sales rollups (db/init/010_sales_rollups.sql): orders, units and revenue
+ * per UTC day, and units and revenue per product per day. Each order is counted once, from the
+ * order.created outbox event ({@link SalesRollupHandler}) or by {@link #startBackfill()} for orders
+ * placed before the rollups existed; sales_rollup_orders makes both paths safe to repeat or overlap.
+ * Dashboard reads then touch at most one row per day (per product), whatever the number of orders.
+ */
+@Service
+public class SalesRollupService {
+    private static final Logger log = LoggerFactory.getLogger(SalesRollupService.class);
+
+    // One statement per batch of orders: claims the orders not counted yet, expands their items and adds
+    // them to both rollups; returns the number of newly counted orders. Lines without a price snapshot
+    // (older orders) fall back to the current product price. Rollup rows are upserted in key order.
+    private static final String APPLY_SQL = """
+            WITH counted AS (
+                INSERT INTO sales_rollup_orders (order_id)
+                SELECT id FROM orders WHERE id = ANY(?)
+                ON CONFLICT DO NOTHING
+                RETURNING order_id),
+            new_orders AS (
+                SELECT o.id, (o.created_at AT TIME ZONE 'UTC')::DATE AS day, o.items, o.total_cents
+                FROM orders o JOIN counted c ON c.order_id = o.id),
+            lines AS (
+                SELECT n.day, (it->>'productId')::UUID AS product_id, (it->>'quantity')::BIGINT AS units,
+                       (it->>'quantity')::BIGINT * COALESCE((it->>'unitPriceCents')::BIGINT, p.price_cents, 0) AS revenue_cents
+                FROM new_orders n
+                CROSS JOIN LATERAL jsonb_array_elements(n.items) it
+                LEFT JOIN products p ON p.id = (it->>'productId')::UUID
+                WHERE (it->>'quantity')::INTEGER > 0),
+            per_product AS (
+                INSERT INTO sales_product_daily AS s (day, product_id, units, revenue_cents)
+                SELECT day, product_id, SUM(units), SUM(revenue_cents) FROM lines
+                GROUP BY day, product_id ORDER BY day, product_id
+                ON CONFLICT (day, product_id) DO UPDATE
+                SET units = s.units + EXCLUDED.units, revenue_cents = s.revenue_cents + EXCLUDED.revenue_cents),
+            per_day AS (
+                INSERT INTO sales_daily AS s (day, orders, units, revenue_cents)
+                SELECT n.day, n.orders, COALESCE(u.units, 0), n.revenue_cents
+                FROM (SELECT day, COUNT(*) AS orders, SUM(total_cents) AS revenue_cents FROM new_orders GROUP BY day) n
+                LEFT JOIN (SELECT day, SUM(units) AS units FROM lines GROUP BY day) u ON u.day = n.day
+                ORDER BY n.day
+                ON CONFLICT (day) DO UPDATE
+                SET orders = s.orders + EXCLUDED.orders, units = s.units + EXCLUDED.units,
+                    revenue_cents = s.revenue_cents + EXCLUDED.revenue_cents)
+            SELECT COUNT(*) FROM counted
+            """;
+    // Keyset on id alone: each partition's primary key (id, created_at) returns it in order
+    private static final String BACKFILL_PAGE_SQL = "SELECT id FROM orders WHERE id > ? ORDER BY id LIMIT ?";
+    private static final String TOP_SQL = """
+            SELECT s.product_id, p.title, SUM(s.units) AS units, SUM(s.revenue_cents) AS revenue_cents
+            FROM sales_product_daily s
+            LEFT JOIN products p ON p.id = s.product_id
+            WHERE s.day >= ? AND s.day < ?
+            GROUP BY s.product_id, p.title
+            """;
+    private static final String DAILY_SQL = """
+            SELECT d::DATE AS day, COALESCE(s.orders, 0), COALESCE(s.units, 0), COALESCE(s.revenue_cents, 0)
+            FROM generate_series(?::DATE, ?::DATE, INTERVAL '1 day') d
+            LEFT JOIN sales_daily s ON s.day = d::DATE
+            ORDER BY 1
+            """;
+
+    public enum Ranking { REVENUE, UNITS }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int backfillBatchSize;
+    private final Counter countedFromEvents;
+    private final Counter countedByBackfill;
+    private final ExecutorService backfillExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "sales-backfill");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicBoolean backfillRunning = new AtomicBoolean();
+    private final AtomicLong backfillScanned = new AtomicLong();
+    private final AtomicLong backfillCounted = new AtomicLong();
+    private volatile Instant backfillStartedAt;
+    private volatile Instant backfillFinishedAt;
+    private volatile String backfillError;
+
+    public SalesRollupService(JdbcTemplate jdbcTemplate,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.analytics.backfillBatchSize}") int backfillBatchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.backfillBatchSize = backfillBatchSize;
+        this.countedFromEvents = counted(meterRegistry, "event");
+        this.countedByBackfill = counted(meterRegistry, "backfill");
+    }
+
+    private static Counter counted(MeterRegistry meterRegistry, String source) {
+        return Counter.builder("isdstore.sales.rollup")
+                .description("Orders added to the sales rollups")
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Adds the given orders to the rollups, skipping those already counted; returns how many were new.
+     */
+    public int apply(Collection<UUID> orderIds) {
+        if (orderIds.isEmpty()) return 0;
+        Integer counted = jdbcTemplate.query(APPLY_SQL,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", orderIds.toArray())),
+                rs -> rs.next() ? rs.getInt(1) : 0);
+        return counted == null ? 0 : counted;
+    }
+
+    void applyFromEvent(UUID orderId) {
+        countedFromEvents.increment(apply(List.of(orderId)));
+    }
+
+    /**
+     * Products ranked by revenue or units over the last {@code days} UTC days, today included.
+     */
+    @Transactional(readOnly = true)
+    public List<TopProductDTO> topProducts(int days, int limit, Ranking ranking) {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        String order = ranking == Ranking.UNITS ? "units DESC, revenue_cents DESC" : "revenue_cents DESC, units DESC";
+        return jdbcTemplate.query(TOP_SQL + "ORDER BY " + order + ", s.product_id LIMIT ?", (rs, i) -> {
+            TopProductDTO dto = new TopProductDTO();
+            dto.setProductId(rs.getObject(1, UUID.class));
+            dto.setTitle(rs.getString(2));
+            dto.setUnits(rs.getLong(3));
+            dto.setRevenueCents(rs.getLong(4));
+            return dto;
+        }, today.minusDays(days - 1L), today.plusDays(1), limit);
+    }
+
+    /**
+     * One entry per UTC day in [from, to], zero-filled for days without orders.
+     */
+    @Transactional(readOnly = true)
+    public List<DailySalesDTO> daily(LocalDate from, LocalDate to) {
+        return jdbcTemplate.query(DAILY_SQL, (rs, i) -> {
+            DailySalesDTO dto = new DailySalesDTO();
+            dto.setDay(rs.getObject(1, LocalDate.class));
+            dto.setOrders(rs.getLong(2));
+            dto.setUnits(rs.getLong(3));
+            dto.setRevenueCents(rs.getLong(4));
+            return dto;
+        }, from, to);
+    }
+
+    /**
+     * Starts counting all existing orders in the background, oldest first, in batches of backfillBatchSize.
+     * Orders already counted are skipped, so it can run alongside live checkouts or be re-run.
+     * Returns false if a backfill is already running on this instance.
+     */
+    public boolean startBackfill() {
+        if (!backfillRunning.compareAndSet(false, true)) return false;
+        backfillScanned.set(0);
+        backfillCounted.set(0);
+        backfillStartedAt = Instant.now();
+        backfillFinishedAt = null;
+        backfillError = null;
+        backfillExecutor.execute(this::backfill);
+        return true;
+    }
+
+    private void backfill() {
+        // Postgres orders uuids as unsigned bytes, so the all-zero uuid sorts first
+        UUID after = new UUID(0, 0);
+        try {
+            while (true) {
+                List<UUID> page = jdbcTemplate.queryForList(BACKFILL_PAGE_SQL, UUID.class, after, backfillBatchSize);
+                if (page.isEmpty()) break;
+                after = page.get(page.size() - 1);
+
+                int counted = apply(page);
+                backfillScanned.addAndGet(page.size());
+                backfillCounted.addAndGet(counted);
+                countedByBackfill.increment(counted);
+                if (page.size() < backfillBatchSize) break;
+            }
+            log.info("Sales rollup backfill done: {} orders scanned, {} newly counted", backfillScanned.get(), backfillCounted.get());
+        } catch (Exception e) {
+            backfillError = e.getClass().getSimpleName() + ": " + e.getMessage();
+            log.warn("Sales rollup backfill failed after {} orders: {}", backfillScanned.get(), e.getMessage());
+        } finally {
+            backfillFinishedAt = Instant.now();
+            backfillRunning.set(false);
+        }
+    }
+
+    public Map<String, Object> backfillStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("running", backfillRunning.get());
+        status.put("scanned", backfillScanned.get());
+        status.put("counted", backfillCounted.get());
+        status.put("startedAt", backfillStartedAt);
+        status.put("finishedAt", backfillFinishedAt);
+        status.put("error", backfillError);
+        return status;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        backfillExecutor.shutdownNow();
+    }
+}
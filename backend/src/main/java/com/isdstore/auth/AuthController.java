@@ -2,21 +2,29 @@ package com.isdstore.auth;
 
 import com.isdstore.auth.dto.AuthRequest;
 import com.isdstore.auth.dto.AuthResponse;
+import com.isdstore.auth.dto.RefreshRequest;
 import com.isdstore.common.entity.Role;
 import com.isdstore.common.entity.User;
 import com.isdstore.common.repo.RoleRepository;
 import com.isdstore.common.repo.UserRepository;
 import com.isdstore.security.JwtService;
 import com.isdstore.security.TokenService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Locale;
 import java.util.Optional;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/auth")
@@ -25,20 +33,23 @@ public class AuthController {
 
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashing;
     private final JwtService jwtService;
     private final TokenService tokenService;
+    private final int retryAfterSeconds;
 
     public AuthController(UserRepository userRepository,
                           RoleRepository roleRepository,
-                          PasswordEncoder passwordEncoder,
+                          PasswordHashingService passwordHashing,
                           JwtService jwtService,
-                          TokenService tokenService) {
+                          TokenService tokenService,
+                          @Value("${app.auth.hashing.retryAfterSeconds}") int retryAfterSeconds) {
         this.userRepository = userRepository;
         this.roleRepository = roleRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHashing = passwordHashing;
         this.jwtService = jwtService;
         this.tokenService = tokenService;
+        this.retryAfterSeconds = retryAfterSeconds;
     }
 
     @PostMapping("/register")
@@ -52,7 +63,12 @@ public class AuthController {
         Role userRole = roleRepository.findByName("user").orElseThrow(() -> new IllegalStateException("Missing role 'user'"));
         User user = new User();
         user.setEmail(email);
-        user.setPasswordHash(passwordEncoder.encode(req.getPassword()));
+        try {
+            user.setPasswordHash(passwordHashing.encode(req.getPassword()));
+        } catch (PasswordHashingBusyException e) {
+            log.warn("Registration rejected for {}: hashing pool saturated", email);
+            return busy();
+        }
         user.setRole(userRole);
         userRepository.save(user);
         log.info("Registered new user {} with role {}", user.getId(), userRole.getName());
@@ -60,7 +76,7 @@ public class AuthController {
     }
 
     @PostMapping("/login")
-    public ResponseEntity<AuthResponse> login(@Valid @RequestBody AuthRequest req) {
+    public ResponseEntity<?> login(@Valid @RequestBody AuthRequest req) {
         String email = req.getEmail().toLowerCase(Locale.ROOT).trim();
         Optional<User> userOpt = userRepository.findByEmail(email);
         if (userOpt.isEmpty()) {
@@ -68,29 +84,122 @@ public class AuthController {
             return ResponseEntity.status(401).build();
         }
         User user = userOpt.get();
-        if (!passwordEncoder.matches(req.getPassword(), user.getPasswordHash())) {
+        boolean matches;
+        try {
+            matches = passwordHashing.matches(req.getPassword(), user.getPasswordHash());
+        } catch (PasswordHashingBusyException e) {
+            log.warn("Login rejected for user {}: hashing pool saturated", user.getId());
+            return busy();
+        }
+        if (!matches) {
             log.warn("Login failed for user {}: invalid password", user.getId());
             return ResponseEntity.status(401).build();
         }
-        String role = user.getRole().getName();
-    String access = jwtService.generateAccessToken(user.getId(), role);
-    String refresh = jwtService.generateRefreshToken(user.getId(), role);
-    // store in redis allowlist
-    tokenService.storeToken("access", user.getId(), access, jwtService.getAccessTtlSeconds());
-    tokenService.storeToken("refresh", user.getId(), refresh, jwtService.getRefreshTtlSeconds());
+        AuthResponse tokens = issueTokens(user);
         log.info("User {} logged in", user.getId());
-        return ResponseEntity.ok(new AuthResponse(access, refresh));
+        return ResponseEntity.ok(tokens);
     }
 
+    /**
+     * Issues a new access/refresh pair and allow-lists both jti in one Redis round trip.
+     */
+    private AuthResponse issueTokens(User user) {
+        String role = user.getRole().getName();
+        String accessJti = jwtService.newTokenId();
+        String refreshJti = jwtService.newTokenId();
+        String access = jwtService.generateAccessToken(user.getId(), role, accessJti);
+        String refresh = jwtService.generateRefreshToken(user.getId(), role, refreshJti);
+        tokenService.storeSession(user.getId(), accessJti, jwtService.getAccessTtlSeconds(),
+                refreshJti, jwtService.getRefreshTtlSeconds());
+        return new AuthResponse(access, refresh);
+    }
+
+    private ResponseEntity<?> busy() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body("Too many login attempts in progress, retry later");
+    }
+
+    /**
+     * Refresh-token rotation: the presented refresh token is consumed atomically and a new
+     * pair is issued, so a refresh token can be used at most once.
+     */
     @PostMapping("/refresh")
-    public ResponseEntity<AuthResponse> refresh(@RequestBody(required = false) String refreshToken) {
-        // TODO implement refresh JWT token
-        return ResponseEntity.ok(new AuthResponse("new-access-token-stub", "refresh-token-stub"));
+    public ResponseEntity<AuthResponse> refresh(@Valid @RequestBody RefreshRequest req) {
+        Claims claims = parse(req.getRefreshToken(), "refresh");
+        if (claims == null) {
+            return ResponseEntity.status(401).build();
+        }
+        UUID userId = UUID.fromString(claims.getSubject());
+        if (!tokenService.consumeRefreshToken(userId, claims.getId())) {
+            log.warn("Refresh rejected for user {}: token {} already used or revoked", userId, claims.getId());
+            return ResponseEntity.status(401).build();
+        }
+        Optional<User> userOpt = userRepository.findById(userId);
+        if (userOpt.isEmpty()) {
+            log.warn("Refresh rejected: user {} no longer exists", userId);
+            return ResponseEntity.status(401).build();
+        }
+        AuthResponse tokens = issueTokens(userOpt.get());
+        log.info("Rotated refresh token for user {}", userId);
+        return ResponseEntity.ok(tokens);
     }
 
+    /**
+     * Revokes the bearer access token and, if supplied, the refresh token of the same session.
+     */
     @PostMapping("/logout")
-    public ResponseEntity<?> logout() {
-        // TODO invalidate refresh token (delete from REDIS)
-        return ResponseEntity.ok().body("logged out (stub)");
+    public ResponseEntity<?> logout(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+                                    @RequestBody(required = false) RefreshRequest req) {
+        if (authorization != null && authorization.startsWith("Bearer ")) {
+            String access = authorization.substring(7);
+            Claims claims = parse(access, "access");
+            if (claims != null) {
+                tokenService.invalidateToken("access", UUID.fromString(claims.getSubject()), claims.getId(), access);
+            }
+        }
+        if (req != null && req.getRefreshToken() != null) {
+            Claims claims = parse(req.getRefreshToken(), "refresh");
+            if (claims != null) {
+                tokenService.invalidateToken("refresh", UUID.fromString(claims.getSubject()), claims.getId(), req.getRefreshToken());
+            }
+        }
+        return ResponseEntity.ok().body("logged out");
+    }
+
+    /**
+     * Logout everywhere: revokes every access and refresh token of the authenticated user.
+     */
+    @PostMapping("/logout-all")
+    public ResponseEntity<?> logoutAll() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || !(auth.getPrincipal() instanceof String principal)) {
+            return ResponseEntity.status(401).build();
+        }
+        UUID userId;
+        try {
+            userId = UUID.fromString(principal);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(401).build();
+        }
+        long revoked = tokenService.revokeAllSessions(userId);
+        return ResponseEntity.ok().body("logged out from " + revoked + " tokens");
+    }
+
+    /**
+     * Verifies signature, expiry, type and presence of a jti; returns null if any check fails.
+     */
+    private Claims parse(String token, String expectedTyp) {
+        try {
+            Claims claims = jwtService.parseToken(token);
+            if (!expectedTyp.equals(claims.get("typ", String.class)) || claims.getId() == null) {
+                log.warn("Rejected token: expected {} token with jti", expectedTyp);
+                return null;
+            }
+            return claims;
+        } catch (JwtException | IllegalArgumentException e) {
+            log.warn("Rejected {} token: {}", expectedTyp, e.getMessage());
+            return null;
+        }
     }
 }
@@ -0,0 +1,10 @@
+package com.isdstore.auth;
+
+/**
+ * Thrown when the password hashing pool and its queue are full; mapped to 503 by AuthController.
+ */
+public class PasswordHashingBusyException extends RuntimeException {
+    public PasswordHashingBusyException() {
+        super("Password hashing capacity exhausted");
+    }
+}
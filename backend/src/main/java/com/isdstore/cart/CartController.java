@@ -1,8 +1,8 @@
 package com.isdstore.cart;
 
-import com.isdstore.common.dto.CartDTO;
 import com.isdstore.common.dto.CartItemDTO;
 import com.isdstore.common.dto.CartViewDTO;
+import com.isdstore.products.ProductCatalogCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.ResponseEntity;
@@ -11,7 +11,6 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.UUID;
-import com.isdstore.common.repo.ProductRepository;
 
 @RestController
 @RequestMapping("/api/cart")
@@ -20,11 +19,11 @@ public class CartController {
     private static final Logger log = LoggerFactory.getLogger(CartController.class);
 
     private final CartService cartService;
-    private final ProductRepository productRepository;
+    private final ProductCatalogCache catalogCache;
 
-    public CartController(CartService cartService, ProductRepository productRepository) {
+    public CartController(CartService cartService, ProductCatalogCache catalogCache) {
         this.cartService = cartService;
-        this.productRepository = productRepository;
+        this.catalogCache = catalogCache;
     }
 
     @GetMapping
@@ -41,14 +40,13 @@ public class CartController {
         if (item.getProductId() == null || item.getQuantity() == null) {
             return ResponseEntity.badRequest().body("productId and quantity are required");
         }
-        if (!productRepository.existsById(item.getProductId())) {
+        if (catalogCache.get(item.getProductId()).isEmpty()) {
             return ResponseEntity.badRequest().body("Product not found");
         }
         UUID userId = currentUserId();
         log.info("POST /api/cart/items user={} productId={} quantity={}", userId, item.getProductId(), item.getQuantity());
-        CartDTO cart = cartService.addItem(userId, item.getProductId(), item.getQuantity());
-        log.info("Item added. user={} newItemsCount={} totalCents={}", userId, cart.getItems().size(), cart.getTotalCents());
-        CartViewDTO view = cartService.getCartView(userId);
+        CartViewDTO view = cartService.addItem(userId, item.getProductId(), item.getQuantity());
+        log.info("Item added. user={} newItemsCount={} totalCents={}", userId, view.getItems().size(), view.getTotalCents());
         return ResponseEntity.ok(view);
     }
 
@@ -58,9 +56,8 @@ public class CartController {
             UUID pid = UUID.fromString(productId);
             UUID userId = currentUserId();
             log.info("DELETE /api/cart/items/{} user={}", pid, userId);
-            CartDTO cart = cartService.removeItem(userId, pid);
-            log.info("Item removed. user={} newItemsCount={} totalCents={}", userId, cart.getItems().size(), cart.getTotalCents());
-            CartViewDTO view = cartService.getCartView(userId);
+            CartViewDTO view = cartService.removeItem(userId, pid);
+            log.info("Item removed. user={} newItemsCount={} totalCents={}", userId, view.getItems().size(), view.getTotalCents());
             return ResponseEntity.ok(view);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body("Invalid productId");
@@ -0,0 +1,236 @@
+package com.isdstore.cart;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.isdstore.common.dto.CartItemDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Write-behind of Redis carts into the carts table. The cart scripts record every write in
+ * the dirty set {@code cart:dirty} (userId scored by a change counter) in the same round trip,
+ * so the request path never touches Postgres. {@link #flush()} periodically upserts dirty carts
+ * in batches; since the dirty set lives in Redis, work left by a crashed instance is picked up
+ * by the next flush on any instance. On a Redis miss the cart scripts refuse to run until the cart
+ * has been restored from Postgres by {@link #restore}.
+ */
+@Component
+public class CartPersistence {
+    private static final Logger log = LoggerFactory.getLogger(CartPersistence.class);
+    static final String DIRTY_KEY = "cart:dirty";
+    private static final String LOCK_KEY = "cart:flush:lock";
+    private static final int MAX_BATCHES_PER_RUN = 20;
+
+    // Skips carts whose owner was deleted instead of failing the whole batch on the foreign key
+    private static final String UPSERT_SQL = """
+            INSERT INTO carts (user_id, items)
+            SELECT ?, ?::jsonb WHERE EXISTS (SELECT 1 FROM users WHERE id = ?)
+            ON CONFLICT (user_id) DO UPDATE SET items = EXCLUDED.items
+            """;
+    private static final String DELETE_SQL = "DELETE FROM carts WHERE user_id = ?";
+    private static final String SELECT_SQL = "SELECT items FROM carts WHERE user_id = ?";
+
+    private final StringRedisTemplate redis;
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+    private final Duration lockTtl;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final ObjectReader itemsReader;
+    private final ObjectWriter itemsWriter;
+    private final Timer flushTimer;
+    private final Counter upserted;
+    private final Counter deleted;
+    private final Counter rehydrated;
+
+    public CartPersistence(StringRedisTemplate redis,
+                           JdbcTemplate jdbcTemplate,
+                           MeterRegistry meterRegistry,
+                           @Value("${app.cart.persistence.batchSize}") int batchSize,
+                           @Value("${app.cart.persistence.flushIntervalMs}") long flushIntervalMs) {
+        this.redis = redis;
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+        // A crashed flusher's lock expires well before the next runs are starved
+        this.lockTtl = Duration.ofMillis(Math.max(flushIntervalMs * 6, 30_000));
+        ObjectMapper objectMapper = new ObjectMapper();
+        TypeReference<List<CartItemDTO>> type = new TypeReference<>() {};
+        this.itemsReader = objectMapper.readerFor(type);
+        this.itemsWriter = objectMapper.writerFor(type);
+        this.flushTimer = Timer.builder("isdstore.cart.flush").description("Write-behind flush runs").register(meterRegistry);
+        this.upserted = Counter.builder("isdstore.cart.persisted").tag("op", "upsert").register(meterRegistry);
+        this.deleted = Counter.builder("isdstore.cart.persisted").tag("op", "delete").register(meterRegistry);
+        this.rehydrated = Counter.builder("isdstore.cart.rehydrated").register(meterRegistry);
+    }
+
+    /**
+     * Copies a cart persisted in Postgres back into Redis, called when a cart script found no cart.
+     * A cart written in Redis meanwhile wins (see {@link CartScripts#HYDRATE}).
+     */
+    void restore(UUID userId, String cartKey, Duration ttl) {
+        List<CartItemDTO> items = loadPersisted(userId);
+        if (items.isEmpty()) {
+            return;
+        }
+        List<String> args = new ArrayList<>(2 + items.size() * 2);
+        args.add(userId.toString());
+        args.add(String.valueOf(ttl.toSeconds()));
+        for (CartItemDTO it : items) {
+            args.add(it.getProductId().toString());
+            args.add(String.valueOf(it.getQuantity()));
+        }
+        Long restored = redis.execute(CartScripts.HYDRATE, List.of(cartKey, DIRTY_KEY), args.toArray());
+        if (restored != null && restored == 1L) {
+            rehydrated.increment();
+            log.info("Rehydrated cart for user {} from Postgres with {} items", userId, items.size());
+        }
+    }
+
+    private List<CartItemDTO> loadPersisted(UUID userId) {
+        List<String> rows = jdbcTemplate.queryForList(SELECT_SQL, String.class, userId);
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+        try {
+            List<CartItemDTO> items = itemsReader.readValue(rows.get(0));
+            items.removeIf(it -> it.getProductId() == null || it.getQuantity() == null || it.getQuantity() <= 0);
+            return items;
+        } catch (JsonProcessingException e) {
+            log.warn("Ignoring unreadable persisted cart for user {}: {}", userId, e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * Flushes dirty carts in batches. Only one instance flushes at a time (Redis lock).
+     */
+    @Scheduled(fixedDelayString = "${app.cart.persistence.flushIntervalMs}", initialDelayString = "${app.cart.persistence.flushIntervalMs}")
+    public void flush() {
+        Boolean locked;
+        try {
+            locked = redis.opsForValue().setIfAbsent(LOCK_KEY, instanceId, lockTtl);
+        } catch (Exception e) {
+            log.warn("Cart flush skipped, Redis unavailable: {}", e.getMessage());
+            return;
+        }
+        if (!Boolean.TRUE.equals(locked)) {
+            return;
+        }
+        try {
+            flushTimer.record(() -> {
+                for (int i = 0; i < MAX_BATCHES_PER_RUN; i++) {
+                    if (flushBatch() < batchSize) break;
+                }
+            });
+        } catch (Exception e) {
+            // Entries stay in the dirty set and are retried on the next run
+            log.warn("Cart flush failed: {}", e.getMessage());
+        } finally {
+            redis.execute(CartScripts.UNLOCK, List.of(LOCK_KEY), instanceId);
+        }
+    }
+
+    private int flushBatch() {
+        Set<ZSetOperations.TypedTuple<String>> dirty = redis.opsForZSet().rangeWithScores(DIRTY_KEY, 0, batchSize - 1);
+        if (dirty == null || dirty.isEmpty()) {
+            return 0;
+        }
+        List<String> userIds = new ArrayList<>(dirty.size());
+        List<Object> ackArgs = new ArrayList<>(dirty.size() * 2);
+        for (ZSetOperations.TypedTuple<String> t : dirty) {
+            userIds.add(t.getValue());
+            ackArgs.add(t.getValue());
+            ackArgs.add(String.valueOf(t.getScore()));
+        }
+        // Snapshot every cart in one pipelined round trip; read after the scores, so a write in
+        // between is either included here or leaves a higher score behind for the next run
+        List<Object> carts = redis.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                for (String userId : userIds) {
+                    ops.opsForHash().entries(CartService.CART_KEY_PREFIX + userId);
+                }
+                return null;
+            }
+        });
+
+        List<Object[]> upserts = new ArrayList<>();
+        List<Object[]> deletes = new ArrayList<>();
+        for (int i = 0; i < userIds.size(); i++) {
+            UUID userId;
+            try {
+                userId = UUID.fromString(userIds.get(i));
+            } catch (IllegalArgumentException e) {
+                log.warn("Dropping malformed dirty cart entry {}", userIds.get(i));
+                continue;
+            }
+            List<CartItemDTO> items = toItems((Map<?, ?>) carts.get(i));
+            if (items.isEmpty()) {
+                deletes.add(new Object[]{userId});
+            } else {
+                upserts.add(new Object[]{userId, writeItems(items), userId});
+            }
+        }
+        if (!upserts.isEmpty()) jdbcTemplate.batchUpdate(UPSERT_SQL, upserts);
+        if (!deletes.isEmpty()) jdbcTemplate.batchUpdate(DELETE_SQL, deletes);
+        upserted.increment(upserts.size());
+        deleted.increment(deletes.size());
+
+        redis.execute(CartScripts.ACK, List.of(DIRTY_KEY), ackArgs.toArray());
+        log.info("Flushed {} carts to Postgres ({} upserted, {} deleted)", userIds.size(), upserts.size(), deletes.size());
+        return dirty.size();
+    }
+
+    private static List<CartItemDTO> toItems(Map<?, ?> hash) {
+        List<CartItemDTO> items = new ArrayList<>();
+        if (hash == null) return items;
+        for (Map.Entry<?, ?> e : hash.entrySet()) {
+            try {
+                CartItemDTO it = new CartItemDTO();
+                it.setProductId(UUID.fromString(e.getKey().toString()));
+                it.setQuantity(Integer.parseInt(e.getValue().toString()));
+                items.add(it);
+            } catch (IllegalArgumentException ex) {
+                log.warn("Skipping malformed cart entry {}={} while flushing", e.getKey(), e.getValue());
+            }
+        }
+        return items;
+    }
+
+    private String writeItems(List<CartItemDTO> items) {
+        try {
+            return itemsWriter.writeValueAsString(items);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize cart items", e);
+        }
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+    }
+}
@@ -0,0 +1,127 @@
+package com.isdstore.cart;
+
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.List;
+
+/**
+ * Lua scripts operating on the cart hash (productId -> quantity).
+ * Each script first upgrades a legacy JSON string cart stored under the same key,
+ * then applies its change and returns the resulting HGETALL in one round trip.
+ * Writes also bump the user's entry in the dirty set (KEYS[2]) read by {@link CartPersistence}.
+ * A script that finds no cart replies nil unless the cart is known to live only in Redis; the
+ * caller then restores it from Postgres and retries with the restored flag set.
+ */
+final class CartScripts {
+
+    // KEYS[1] = cart key. Converts '[{"productId":..,"quantity":..}]' into a hash in place.
+    private static final String MIGRATE_LEGACY = """
+            if redis.call('TYPE', KEYS[1]).ok == 'string' then
+              local ttl = redis.call('TTL', KEYS[1])
+              local ok, items = pcall(cjson.decode, redis.call('GET', KEYS[1]))
+              redis.call('DEL', KEYS[1])
+              if ok and type(items) == 'table' then
+                for _, it in ipairs(items) do
+                  if type(it) == 'table' and type(it.productId) == 'string' and type(it.quantity) == 'number' and it.quantity > 0 then
+                    redis.call('HINCRBY', KEYS[1], it.productId, it.quantity)
+                  end
+                end
+                if ttl > 0 then redis.call('EXPIRE', KEYS[1], ttl) end
+              end
+            end
+            """;
+
+    // Expects locals user and restored. A missing cart with no pending write in the dirty set (KEYS[2])
+    // may still be persisted in Postgres: writing now would start an empty cart that the next flush
+    // upserts over the saved one, so reply nil until the caller has restored it (restored = '1').
+    private static final String REQUIRE_RESIDENT = """
+            if restored ~= '1' and redis.call('EXISTS', KEYS[1]) == 0 and not redis.call('ZSCORE', KEYS[2], user) then
+              return false
+            end
+            """;
+
+    // KEYS[2] = dirty set. ARGV[1] = productId, ARGV[2] = increment, ARGV[3] = ttl seconds, ARGV[4] = userId,
+    // ARGV[5] = restored flag
+    static final RedisScript<List> ADD = script("local user, restored = ARGV[4], ARGV[5]\n" + MIGRATE_LEGACY + REQUIRE_RESIDENT + """
+            redis.call('HINCRBY', KEYS[1], ARGV[1], ARGV[2])
+            redis.call('EXPIRE', KEYS[1], ARGV[3])
+            redis.call('ZINCRBY', KEYS[2], 1, ARGV[4])
+            return redis.call('HGETALL', KEYS[1])
+            """);
+
+    // KEYS[2] = dirty set. ARGV[1] = productId, ARGV[2] = ttl seconds, ARGV[3] = userId, ARGV[4] = restored flag
+    static final RedisScript<List> REMOVE = script("local user, restored = ARGV[3], ARGV[4]\n" + MIGRATE_LEGACY + REQUIRE_RESIDENT + """
+            redis.call('HDEL', KEYS[1], ARGV[1])
+            if redis.call('EXISTS', KEYS[1]) == 1 then redis.call('EXPIRE', KEYS[1], ARGV[2]) end
+            redis.call('ZINCRBY', KEYS[2], 1, ARGV[3])
+            return redis.call('HGETALL', KEYS[1])
+            """);
+
+    // Takes checked-out quantities off their lines and deletes lines left at zero or below, so units
+    // added after checkout stay. KEYS[3] marks the order as applied: a repeated delivery changes nothing.
+    // KEYS[2] = dirty set, KEYS[3] = applied marker. ARGV[1] = userId, ARGV[2] = restored flag,
+    // ARGV[3] = marker ttl seconds, ARGV[4..] = productId, quantity pairs. Returns the number of lines removed.
+    static final RedisScript<Long> REMOVE_MANY = new DefaultRedisScript<>("local user, restored = ARGV[1], ARGV[2]\n"
+            + MIGRATE_LEGACY + REQUIRE_RESIDENT + """
+            if not redis.call('SET', KEYS[3], '1', 'NX', 'EX', ARGV[3]) then return 0 end
+            local removed = 0
+            for i = 4, #ARGV, 2 do
+              if redis.call('HEXISTS', KEYS[1], ARGV[i]) == 1
+                  and redis.call('HINCRBY', KEYS[1], ARGV[i], '-' .. ARGV[i + 1]) <= 0 then
+                redis.call('HDEL', KEYS[1], ARGV[i])
+                removed = removed + 1
+              end
+            end
+            redis.call('ZINCRBY', KEYS[2], 1, ARGV[1])
+            return removed
+            """, Long.class);
+
+    // Restores a cart persisted in Postgres, unless Redis already has one or a write is still
+    // pending in the dirty set (then Redis is newer than Postgres, e.g. a cart just emptied).
+    // KEYS[2] = dirty set. ARGV[1] = userId, ARGV[2] = ttl seconds, ARGV[3..] = productId, quantity pairs.
+    static final RedisScript<Long> HYDRATE = new DefaultRedisScript<>("""
+            if redis.call('EXISTS', KEYS[1]) == 1 or redis.call('ZSCORE', KEYS[2], ARGV[1]) then
+              return 0
+            end
+            for i = 3, #ARGV, 2 do
+              redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1])
+            end
+            redis.call('EXPIRE', KEYS[1], ARGV[2])
+            return 1
+            """, Long.class);
+
+    // KEYS[1] = dirty set, ARGV = userId, score pairs read before the flush.
+    // Removes only entries whose score is unchanged, so carts modified during the flush stay dirty.
+    static final RedisScript<Long> ACK = new DefaultRedisScript<>("""
+            local removed = 0
+            for i = 1, #ARGV, 2 do
+              local score = redis.call('ZSCORE', KEYS[1], ARGV[i])
+              if score and tonumber(score) == tonumber(ARGV[i + 1]) then
+                redis.call('ZREM', KEYS[1], ARGV[i])
+                removed = removed + 1
+              end
+            end
+            return removed
+            """, Long.class);
+
+    // KEYS[1] = lock key, ARGV[1] = owner token
+    static final RedisScript<Long> UNLOCK = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+              return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """, Long.class);
+
+    // KEYS[2] = dirty set. ARGV[1] = userId, ARGV[2] = restored flag
+    static final RedisScript<List> READ = script("local user, restored = ARGV[1], ARGV[2]\n" + MIGRATE_LEGACY + REQUIRE_RESIDENT + """
+            return redis.call('HGETALL', KEYS[1])
+            """);
+
+    private CartScripts() {
+    }
+
+    private static RedisScript<List> script(String lua) {
+        return new DefaultRedisScript<>(lua, List.class);
+    }
+}
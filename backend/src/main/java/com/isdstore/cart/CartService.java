@@ -1,39 +1,52 @@
 package com.isdstore.cart;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.isdstore.common.dto.CartDTO;
 import com.isdstore.common.dto.CartItemDTO;
-import com.isdstore.common.entity.Product;
 import com.isdstore.common.dto.CartViewDTO;
-import com.isdstore.common.dto.CartViewItemDTO;
-import com.isdstore.common.dto.ProductDTO;
-import com.isdstore.common.repo.ProductRepository;
+import com.isdstore.products.ProductCatalogCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 @Service
 public class CartService {
     private static final Logger log = LoggerFactory.getLogger(CartService.class);
-    private static final String CART_KEY_PREFIX = "cart:"; // cart:{userId}
+    static final String CART_KEY_PREFIX = "cart:"; // cart:{userId} -> hash productId -> quantity
+    private static final String CLEARED_KEY_PREFIX = "cart:cleared:"; // cart:cleared:{orderId}, see REMOVE_MANY
     private static final Duration CART_TTL = Duration.ofDays(7);
 
     private final StringRedisTemplate redis;
-    private final ObjectMapper objectMapper;
-    private final ProductRepository productRepository;
+    private final ProductCatalogCache catalogCache;
+    private final CartPersistence cartPersistence;
+    private final Timer addTimer;
+    private final Timer removeTimer;
+    private final Timer readTimer;
+    private final Timer clearTimer;
 
-    public CartService(StringRedisTemplate redis, ProductRepository productRepository) {
+    public CartService(StringRedisTemplate redis, ProductCatalogCache catalogCache, CartPersistence cartPersistence, MeterRegistry meterRegistry) {
         this.redis = redis;
-        this.productRepository = productRepository;
-        this.objectMapper = new ObjectMapper();
+        this.catalogCache = catalogCache;
+        this.cartPersistence = cartPersistence;
+        this.addTimer = redisTimer(meterRegistry, "cart.add");
+        this.removeTimer = redisTimer(meterRegistry, "cart.remove");
+        this.readTimer = redisTimer(meterRegistry, "cart.read");
+        this.clearTimer = redisTimer(meterRegistry, "cart.clear");
+    }
+
+    private static Timer redisTimer(MeterRegistry registry, String op) {
+        return Timer.builder("isdstore.redis").description("Redis round trips").tag("op", op).register(registry);
     }
 
     private String key(UUID userId) {
@@ -41,128 +54,110 @@ public class CartService {
     }
 
     public CartDTO getCart(UUID userId) {
-        String k = key(userId);
-        String json = redis.opsForValue().get(k);
-        log.info("Load cart from Redis key={} user={}", k, userId);
-        List<CartItemDTO> items;
-        if (json == null || json.isBlank()) {
-            log.info("Cart empty or missing for user={}", userId);
-            items = new ArrayList<>();
-        } else {
-            try {
-                items = objectMapper.readValue(json, new TypeReference<List<CartItemDTO>>() {});
-                log.info("Parsed cart items={} for user={}", items.size(), userId);
-            } catch (Exception e) {
-                log.warn("Failed to parse cart JSON for user {}: {}", userId, e.getMessage());
-                items = new ArrayList<>();
-            }
-        }
-        int total = computeTotalCents(items);
+        List<CartItemDTO> items = loadItems(userId);
         CartDTO dto = new CartDTO();
         dto.setItems(items);
-        dto.setTotalCents(total);
+        dto.setTotalCents(price(items).totalCents());
         return dto;
     }
 
-    public CartDTO addItem(UUID userId, UUID productId, int quantity) {
+    public CartViewDTO addItem(UUID userId, UUID productId, int quantity) {
         if (quantity <= 0) quantity = 1;
-        List<CartItemDTO> items = getCart(userId).getItems();
-
-        Optional<CartItemDTO> existing = items.stream().filter(i -> productId.equals(i.getProductId())).findFirst();
-        if (existing.isPresent()) {
-            CartItemDTO it = existing.get();
-            it.setQuantity((it.getQuantity() == null ? 0 : it.getQuantity()) + quantity);
-            log.info("Incremented item productId={} qty={} user={}", productId, it.getQuantity(), userId);
-        } else {
-            CartItemDTO it = new CartItemDTO();
-            it.setProductId(productId);
-            it.setQuantity(quantity);
-            items.add(it);
-            log.info("Added new item productId={} qty={} user={}", productId, quantity, userId);
-        }
-        persist(userId, items);
-        CartDTO dto = new CartDTO();
-        dto.setItems(items);
-        dto.setTotalCents(computeTotalCents(items));
-        return dto;
+        List<CartItemDTO> items = execute(addTimer, CartScripts.ADD, userId,
+                productId.toString(), String.valueOf(quantity), String.valueOf(CART_TTL.toSeconds()), userId.toString());
+        log.info("Added productId={} qty=+{} user={} items={}", productId, quantity, userId, items.size());
+        return price(items).toView(userId);
     }
 
-    public CartDTO removeItem(UUID userId, UUID productId) {
-        List<CartItemDTO> items = getCart(userId).getItems();
-        items.removeIf(i -> productId.equals(i.getProductId()));
+    public CartViewDTO removeItem(UUID userId, UUID productId) {
+        List<CartItemDTO> items = execute(removeTimer, CartScripts.REMOVE, userId,
+                productId.toString(), String.valueOf(CART_TTL.toSeconds()), userId.toString());
         log.info("Removed item productId={} user={} remainingItems={}", productId, userId, items.size());
-        persist(userId, items);
-        CartDTO dto = new CartDTO();
-        dto.setItems(items);
-        dto.setTotalCents(computeTotalCents(items));
-        return dto;
+        return price(items).toView(userId);
     }
 
     public CartViewDTO getCartView(UUID userId) {
-        CartDTO raw = getCart(userId);
-        List<CartViewItemDTO> viewItems = new ArrayList<>();
-        int total = 0;
-        for (CartItemDTO it : raw.getItems()) {
-            if (it.getProductId() == null || it.getQuantity() == null) continue;
-            UUID pid = it.getProductId();
-            int qty = Math.max(0, it.getQuantity());
-            Product p = productRepository.findById(pid).orElse(null);
-            if (p == null) {
-                log.warn("Product {} referenced in cart for user {} not found; skipping", pid, userId);
-                continue;
+        return price(loadItems(userId)).toView(userId);
+    }
+
+    private List<CartItemDTO> loadItems(UUID userId) {
+        List<CartItemDTO> items = execute(readTimer, CartScripts.READ, userId, userId.toString());
+        log.info("Load cart from Redis key={} user={} items={}", key(userId), userId, items.size());
+        return items;
+    }
+
+    /**
+     * Runs a cart script and decodes its flat HGETALL reply (field, value, field, value...).
+     * The restored flag is appended to args; see {@link #runResident}.
+     */
+    @SuppressWarnings("unchecked")
+    private List<CartItemDTO> execute(Timer timer, RedisScript<List> script, UUID userId, String... args) {
+        String k = key(userId);
+        List<Object> reply = runResident(timer, script, userId, List.of(k, CartPersistence.DIRTY_KEY), List.of(args), List.of());
+        List<CartItemDTO> items = new ArrayList<>();
+        if (reply == null) return items;
+        for (int i = 0; i + 1 < reply.size(); i += 2) {
+            try {
+                CartItemDTO it = new CartItemDTO();
+                it.setProductId(UUID.fromString(reply.get(i).toString()));
+                it.setQuantity(Integer.parseInt(reply.get(i + 1).toString()));
+                items.add(it);
+            } catch (IllegalArgumentException e) {
+                log.warn("Skipping malformed cart entry {}={} in key {}", reply.get(i), reply.get(i + 1), k);
             }
-            int price = p.getPriceCents() == null ? 0 : p.getPriceCents();
-            int itemTotal = price * qty;
-            total += itemTotal;
-            ProductDTO pdto = new ProductDTO();
-            pdto.setId(p.getId());
-            pdto.setTitle(p.getTitle());
-            pdto.setDescription(p.getDescription());
-            pdto.setPriceCents(price);
-            pdto.setImage(p.getImage());
-            pdto.setStock(p.getStock());
-            CartViewItemDTO vi = new CartViewItemDTO();
-            vi.setProduct(pdto);
-            vi.setQuantity(qty);
-            vi.setItemTotalCents(itemTotal);
-            viewItems.add(vi);
         }
-        CartViewDTO view = new CartViewDTO();
-        view.setItems(viewItems);
-        view.setTotalCents(total);
-        log.info("Built CartView for user={} items={} totalCents={}", userId, viewItems.size(), total);
-        return view;
+        return items;
     }
 
-    private void persist(UUID userId, List<CartItemDTO> items) {
-        try {
-            String json = objectMapper.writeValueAsString(items);
-            String k = key(userId);
-            redis.opsForValue().set(k, json, CART_TTL);
-            log.info("Saved cart to Redis key={} user={} items={}", k, userId, items.size());
-        } catch (Exception e) {
-            log.error("Failed to serialize cart for user {}: {}", userId, e.getMessage());
-            throw new RuntimeException("Failed to save cart");
+    /**
+     * Runs a cart script as {@code args..., restored flag, tail...}. A nil reply means the cart is not in
+     * Redis and may still be persisted: restore it from Postgres, then run again with the flag set.
+     */
+    private <T> T runResident(Timer timer, RedisScript<T> script, UUID userId, List<String> keys, List<String> args, List<String> tail) {
+        List<String> argv = new ArrayList<>(args.size() + 1 + tail.size());
+        argv.addAll(args);
+        argv.add("0");
+        argv.addAll(tail);
+        T reply = timer.record(() -> redis.execute(script, keys, argv.toArray()));
+        if (!isNil(reply)) {
+            return reply;
         }
+        cartPersistence.restore(userId, key(userId), CART_TTL);
+        argv.set(args.size(), "1");
+        return timer.record(() -> redis.execute(script, keys, argv.toArray()));
+    }
+
+    // A nil script reply arrives as null, or as a single null element when the script returns a list
+    private static boolean isNil(Object reply) {
+        return reply == null || reply instanceof List<?> list && list.size() == 1 && list.get(0) == null;
     }
 
-    private int computeTotalCents(List<CartItemDTO> items) {
-        int total = 0;
+    /**
+     * Resolves every product referenced by the cart from the catalog cache; misses cost a single bulk query.
+     * The returned {@link PricedCart} is then used for both totals and views.
+     */
+    private PricedCart price(List<CartItemDTO> items) {
+        Set<UUID> ids = new HashSet<>();
         for (CartItemDTO it : items) {
-            if (it.getProductId() == null || it.getQuantity() == null) continue;
-            UUID pid = it.getProductId();
-            int qty = Math.max(0, it.getQuantity());
-            Product p = productRepository.findById(pid).orElse(null);
-            if (p != null) {
-                total += (p.getPriceCents() == null ? 0 : p.getPriceCents()) * qty;
-            }
+            if (it.getProductId() != null) ids.add(it.getProductId());
         }
-        return total;
+        return new PricedCart(items, catalogCache.getAll(ids));
     }
 
-    public void clearCart(UUID userId) {
-        String k = key(userId);
-        Boolean existed = redis.delete(k);
-        log.info("Cleared cart in Redis key={} user={} existed={}", k, userId, existed);
+    /**
+     * Takes the quantities checked out by an order off the cart in one script call. Applied once per
+     * order, and units added since are kept.
+     */
+    public void removeItems(UUID userId, UUID orderId, Map<UUID, Integer> quantities) {
+        if (quantities.isEmpty()) return;
+        List<String> tail = new ArrayList<>(1 + quantities.size() * 2);
+        tail.add(String.valueOf(CART_TTL.toSeconds()));
+        quantities.forEach((id, qty) -> {
+            tail.add(id.toString());
+            tail.add(String.valueOf(qty));
+        });
+        List<String> keys = List.of(key(userId), CartPersistence.DIRTY_KEY, CLEARED_KEY_PREFIX + orderId);
+        Long removed = runResident(clearTimer, CartScripts.REMOVE_MANY, userId, keys, List.of(userId.toString()), tail);
+        log.info("Removed {} checked-out lines from cart key={} user={} order={}", removed, key(userId), userId, orderId);
     }
 }
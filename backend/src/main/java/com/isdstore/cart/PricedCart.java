@@ -0,0 +1,77 @@
+package com.isdstore.cart;
+
+import com.isdstore.common.dto.CartItemDTO;
+import com.isdstore.common.dto.CartViewDTO;
+import com.isdstore.common.dto.CartViewItemDTO;
+import com.isdstore.common.dto.ProductDTO;
+import com.isdstore.common.entity.Product;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Cart items paired with the products they reference, loaded once per request.
+ * Totals and views are computed from the same snapshot, without further lookups.
+ */
+class PricedCart {
+    private static final Logger log = LoggerFactory.getLogger(PricedCart.class);
+
+    private final List<CartItemDTO> items;
+    private final Map<UUID, Product> products;
+
+    PricedCart(List<CartItemDTO> items, Map<UUID, Product> products) {
+        this.items = items;
+        this.products = products;
+    }
+
+    int totalCents() {
+        int total = 0;
+        for (CartItemDTO it : items) {
+            if (it.getProductId() == null || it.getQuantity() == null) continue;
+            Product p = products.get(it.getProductId());
+            if (p != null) {
+                total += (p.getPriceCents() == null ? 0 : p.getPriceCents()) * Math.max(0, it.getQuantity());
+            }
+        }
+        return total;
+    }
+
+    CartViewDTO toView(UUID userId) {
+        List<CartViewItemDTO> viewItems = new ArrayList<>();
+        int total = 0;
+        for (CartItemDTO it : items) {
+            if (it.getProductId() == null || it.getQuantity() == null) continue;
+            UUID pid = it.getProductId();
+            int qty = Math.max(0, it.getQuantity());
+            Product p = products.get(pid);
+            if (p == null) {
+                log.warn("Product {} referenced in cart for user {} not found; skipping", pid, userId);
+                continue;
+            }
+            int price = p.getPriceCents() == null ? 0 : p.getPriceCents();
+            int itemTotal = price * qty;
+            total += itemTotal;
+            ProductDTO pdto = new ProductDTO();
+            pdto.setId(p.getId());
+            pdto.setTitle(p.getTitle());
+            pdto.setDescription(p.getDescription());
+            pdto.setPriceCents(price);
+            pdto.setImage(p.getImage());
+            pdto.setStock(p.getStock());
+            CartViewItemDTO vi = new CartViewItemDTO();
+            vi.setProduct(pdto);
+            vi.setQuantity(qty);
+            vi.setItemTotalCents(itemTotal);
+            viewItems.add(vi);
+        }
+        CartViewDTO view = new CartViewDTO();
+        view.setItems(viewItems);
+        view.setTotalCents(total);
+        log.info("Built CartView for user={} items={} totalCents={}", userId, viewItems.size(), total);
+        return view;
+    }
+}
@@ -0,0 +1,13 @@
+package com.isdstore.common.dto;
+
+import lombok.Data;
+import java.time.LocalDate;
+
+// Sales of one UTC day, from the sales_daily rollup
+@Data
+public class DailySalesDTO {
+    private LocalDate day;
+    private long orders;
+    private long units;
+    private long revenueCents;
+}
@@ -0,0 +1,14 @@
+package com.isdstore.common.dto;
+
+import lombok.Data;
+import java.util.UUID;
+
+// Line item as stored in orders.items; title and unitPriceCents are snapshotted at checkout
+// and are null on orders created before the snapshot was introduced.
+@Data
+public class OrderItemDTO {
+    private UUID productId;
+    private Integer quantity;
+    private String title;
+    private Integer unitPriceCents;
+}
@@ -6,4 +6,5 @@ import lombok.Data;
 public class OrderItemViewDTO {
     private String title;    // Product title
     private Integer quantity;
+    private Integer unitPriceCents; // null for orders placed before price snapshots
 }
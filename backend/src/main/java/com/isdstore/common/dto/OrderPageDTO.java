@@ -0,0 +1,10 @@
+package com.isdstore.common.dto;
+
+import lombok.Data;
+import java.util.List;
+
+@Data
+public class OrderPageDTO {
+    private List<OrderDTO> items;
+    private String nextCursor; // null when there are no more pages
+}
@@ -0,0 +1,11 @@
+package com.isdstore.common.dto;
+
+import lombok.Data;
+import java.util.UUID;
+
+@Data
+public class ProductSuggestionDTO {
+    private UUID id;
+    private String title;
+    private Integer priceCents;
+}
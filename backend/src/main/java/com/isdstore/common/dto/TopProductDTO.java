@@ -0,0 +1,13 @@
+package com.isdstore.common.dto;
+
+import lombok.Data;
+import java.util.UUID;
+
+// One row of the admin top-products ranking; title is null for a product deleted since
+@Data
+public class TopProductDTO {
+    private UUID productId;
+    private String title;
+    private long units;
+    private long revenueCents;
+}
@@ -14,7 +14,7 @@ import java.util.UUID;
 @Setter
 public class Cart {
     @Id
-    @GeneratedValue
+    @UuidV7
     private UUID id;
 
     @ManyToOne(optional = false)
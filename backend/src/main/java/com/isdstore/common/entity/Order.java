@@ -16,7 +16,7 @@ import java.util.UUID;
 @Setter
 public class Order {
     @Id
-    @GeneratedValue
+    @UuidV7
     private UUID id;
 
     @ManyToOne(optional = false)
@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.Instant;
 import java.util.UUID;
@@ -14,7 +15,7 @@ import java.util.UUID;
 @Setter
 public class Product {
     @Id
-    @GeneratedValue
+    @UuidV7
     private UUID id;
 
     @Column(nullable = false)
@@ -31,6 +32,14 @@ public class Product {
     @Column(nullable = false)
     private Integer stock;
 
+    // Flash-sale mode: stock is reserved from a Redis counter (see HotStockService); set by ops in SQL
+    @Column(nullable = false)
+    private boolean hotStock;
+
     @CreationTimestamp
     private Instant createdAt;
+
+    // Also maintained by trg_products_updated for updates that bypass JPA
+    @UpdateTimestamp
+    private Instant updatedAt;
 }
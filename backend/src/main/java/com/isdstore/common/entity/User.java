@@ -15,7 +15,7 @@ import java.util.UUID;
 @Setter
 public class User {
     @Id
-    @GeneratedValue
+    @UuidV7
     private UUID id;
 
     @Column(nullable = false, unique = true)
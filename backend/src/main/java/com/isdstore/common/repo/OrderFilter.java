@@ -0,0 +1,16 @@
+package com.isdstore.common.repo;
+
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.UUID;
+
+// Optional filters for admin order queries; null fields are ignored. Bounding createdAt
+// (from/to) limits the scan to the matching monthly partitions of orders
+@Data
+public class OrderFilter {
+    private String status;
+    private Instant from;   // inclusive
+    private Instant to;     // exclusive
+    private UUID userId;
+}
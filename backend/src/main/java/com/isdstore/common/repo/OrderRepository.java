@@ -2,10 +2,24 @@ package com.isdstore.common.repo;
 
 import com.isdstore.common.entity.Order;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.UUID;
 
-public interface OrderRepository extends JpaRepository<Order, UUID> {
-    List<Order> findByUserIdOrderByCreatedAtDesc(UUID userId);
+public interface OrderRepository extends JpaRepository<Order, UUID>, OrderRepositoryCustom {
+    // A user's orders created in [from, to), newest first; the created_at bounds let Postgres prune
+    // the monthly partitions of orders, and idx_orders_user_id_created_at serves each remaining one
+    @Transactional(readOnly = true)
+    @Query("SELECT o FROM Order o WHERE o.user.id = :userId AND o.createdAt >= :from AND o.createdAt < :to " +
+            "ORDER BY o.createdAt DESC")
+    List<Order> findByUserIdInRange(@Param("userId") UUID userId, @Param("from") Instant from, @Param("to") Instant to);
+
+    // A user's orders created before to, newest first; every partition is scanned through its index
+    @Transactional(readOnly = true)
+    @Query("SELECT o FROM Order o WHERE o.user.id = :userId AND o.createdAt < :to ORDER BY o.createdAt DESC")
+    List<Order> findByUserIdBefore(@Param("userId") UUID userId, @Param("to") Instant to);
 }
@@ -0,0 +1,19 @@
+package com.isdstore.common.repo;
+
+import com.isdstore.common.entity.Order;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface OrderRepositoryCustom {
+
+    /**
+     * One keyset page ordered by created_at DESC, id DESC, with the user fetched in the same query.
+     */
+    List<Order> findPage(OrderFilter filter, KeysetCursor after, int limit);
+
+    /**
+     * Forward-only cursor over all matching orders; must be consumed inside a transaction and closed.
+     */
+    Stream<Order> streamAll(OrderFilter filter, int fetchSize);
+}
@@ -0,0 +1,69 @@
+package com.isdstore.common.repo;
+
+import com.isdstore.common.entity.Order;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+class OrderRepositoryCustomImpl implements OrderRepositoryCustom {
+
+    private final EntityManager entityManager;
+
+    OrderRepositoryCustomImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Order> findPage(OrderFilter filter, KeysetCursor after, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Order> cq = cb.createQuery(Order.class);
+        Root<Order> o = cq.from(Order.class);
+        o.fetch("user", JoinType.INNER);
+        List<Predicate> where = predicates(cb, o, filter);
+        if (after != null) {
+            // The row-value comparison below cannot prune partitions on its own; the plain upper bound can
+            where.add(cb.lessThanOrEqualTo(o.<Instant>get("createdAt"), after.createdAt()));
+            where.add(cb.or(
+                    cb.lessThan(o.<Instant>get("createdAt"), after.createdAt()),
+                    cb.and(cb.equal(o.get("createdAt"), after.createdAt()), cb.lessThan(o.<UUID>get("id"), after.id()))));
+        }
+        cq.where(where.toArray(new Predicate[0]))
+                .orderBy(cb.desc(o.get("createdAt")), cb.desc(o.get("id")));
+        return entityManager.createQuery(cq).setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public Stream<Order> streamAll(OrderFilter filter, int fetchSize) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Order> cq = cb.createQuery(Order.class);
+        Root<Order> o = cq.from(Order.class);
+        o.fetch("user", JoinType.INNER);
+        cq.where(predicates(cb, o, filter).toArray(new Predicate[0]))
+                .orderBy(cb.desc(o.get("createdAt")), cb.desc(o.get("id")));
+        return entityManager.createQuery(cq)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+
+    private static List<Predicate> predicates(CriteriaBuilder cb, Root<Order> o, OrderFilter filter) {
+        List<Predicate> where = new ArrayList<>();
+        if (filter.getStatus() != null) where.add(cb.equal(o.get("status"), filter.getStatus()));
+        if (filter.getFrom() != null) where.add(cb.greaterThanOrEqualTo(o.<Instant>get("createdAt"), filter.getFrom()));
+        if (filter.getTo() != null) where.add(cb.lessThan(o.<Instant>get("createdAt"), filter.getTo()));
+        if (filter.getUserId() != null) where.add(cb.equal(o.get("user").get("id"), filter.getUserId()));
+        return where;
+    }
+}
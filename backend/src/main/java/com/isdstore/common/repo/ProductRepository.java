@@ -1,9 +1,45 @@
 package com.isdstore.common.repo;
 
 import com.isdstore.common.entity.Product;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 public interface ProductRepository extends JpaRepository<Product, UUID> {
+
+    // Row locks taken in id order so concurrent checkouts cannot deadlock
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Product p WHERE p.id IN :ids ORDER BY p.id")
+    List<Product> lockAllById(@Param("ids") Collection<UUID> ids);
+
+    // Keyset pagination on (created_at, id), newest first; served by idx_products_created_at_id.
+    // The listing/search queries are read-only so that callers can send them to a read replica
+    // (ReplicaRoutingDataSource.onReplica)
+    @Transactional(readOnly = true)
+    @Query(value = "SELECT * FROM products ORDER BY created_at DESC, id DESC LIMIT :limit", nativeQuery = true)
+    List<Product> findPage(@Param("limit") int limit);
+
+    @Transactional(readOnly = true)
+    @Query(value = "SELECT * FROM products WHERE (created_at, id) < (:createdAt, :id) " +
+            "ORDER BY created_at DESC, id DESC LIMIT :limit", nativeQuery = true)
+    List<Product> findPageAfter(@Param("createdAt") Instant createdAt, @Param("id") UUID id, @Param("limit") int limit);
+
+    // Title search; ILIKE on title is served by the trigram index idx_products_title_trgm
+    @Transactional(readOnly = true)
+    @Query(value = "SELECT * FROM products WHERE title ILIKE :pattern " +
+            "ORDER BY created_at DESC, id DESC LIMIT :limit", nativeQuery = true)
+    List<Product> searchPage(@Param("pattern") String pattern, @Param("limit") int limit);
+
+    @Transactional(readOnly = true)
+    @Query(value = "SELECT * FROM products WHERE title ILIKE :pattern AND (created_at, id) < (:createdAt, :id) " +
+            "ORDER BY created_at DESC, id DESC LIMIT :limit", nativeQuery = true)
+    List<Product> searchPageAfter(@Param("pattern") String pattern, @Param("createdAt") Instant createdAt, @Param("id") UUID id, @Param("limit") int limit);
 }
@@ -1,21 +1,34 @@
 package com.isdstore.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 @Configuration
 public class AppConfig {
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${app.auth.bcrypt.strength}") int strength) {
+        // Existing hashes keep verifying at the cost encoded in them; new hashes use this strength
+        return new BCryptPasswordEncoder(strength);
     }
 
     @Bean
-    public StringRedisTemplate stringRedisTemplate(RedisConnectionFactory factory) {
-        return new StringRedisTemplate(factory);
+    public StringRedisTemplate stringRedisTemplate(RedisConnectionFactory factory,
+                                                   @Value("${app.instrumentation.enabled:false}") boolean instrumented) {
+        // Per-request command timing (see InstrumentationConfig); pub/sub below stays unwrapped
+        return new StringRedisTemplate(instrumented ? TimingProxies.redisConnectionFactory(factory) : factory);
+    }
+
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory factory) {
+        // Shared pub/sub container for cross-instance cache invalidation
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(factory);
+        return container;
     }
 }
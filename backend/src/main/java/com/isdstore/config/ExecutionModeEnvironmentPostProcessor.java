@@ -0,0 +1,41 @@
+package com.isdstore.config;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Resolves app.threads.virtual (auto | true | false) against the running JVM and sets
+ * spring.threads.virtual.enabled accordingly. Spring Boot silently ignores that flag below
+ * Java 21, so "auto" turns it on only where it takes effect and an explicit "true" on an
+ * older runtime fails startup instead of running in platform-thread mode unnoticed.
+ */
+public class ExecutionModeEnvironmentPostProcessor implements EnvironmentPostProcessor {
+    static final String MODE_PROPERTY = "app.threads.virtual";
+    static final String SPRING_PROPERTY = "spring.threads.virtual.enabled";
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        boolean enabled = resolve(environment.getProperty(MODE_PROPERTY, "auto"), Runtime.version().feature());
+        environment.getPropertySources().addFirst(new MapPropertySource("executionMode", Map.of(SPRING_PROPERTY, enabled)));
+    }
+
+    static boolean resolve(String mode, int javaFeature) {
+        return switch (mode.trim().toLowerCase(Locale.ROOT)) {
+            case "auto" -> javaFeature >= 21;
+            case "false" -> false;
+            case "true" -> {
+                if (javaFeature < 21) {
+                    throw new IllegalStateException("Virtual threads requested (" + MODE_PROPERTY
+                            + "=true) but running on Java " + javaFeature + "; they need Java 21+");
+                }
+                yield true;
+            }
+            default -> throw new IllegalStateException(MODE_PROPERTY + " must be auto, true or false, got '" + mode + "'");
+        };
+    }
+}
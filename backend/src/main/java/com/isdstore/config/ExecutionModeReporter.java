@@ -0,0 +1,27 @@
+package com.isdstore.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Logs which request execution mode is active, as resolved by {@link ExecutionModeEnvironmentPostProcessor}.
+ */
+@Component
+public class ExecutionModeReporter {
+    private static final Logger log = LoggerFactory.getLogger(ExecutionModeReporter.class);
+
+    private final boolean virtual;
+
+    public ExecutionModeReporter(@Value("${spring.threads.virtual.enabled:false}") boolean virtual) {
+        this.virtual = virtual;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void report() {
+        log.info("Request execution mode: {} threads (Java {})", virtual ? "virtual" : "platform", Runtime.version().feature());
+    }
+}
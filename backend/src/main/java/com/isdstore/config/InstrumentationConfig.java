@@ -0,0 +1,58 @@
+package com.isdstore.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.lang.NonNull;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+
+/**
+ * Opt-in request instrumentation (app.instrumentation.enabled): times every SQL statement and
+ * Redis command per request and returns the breakdown in a Server-Timing header.
+ * The Redis side is wired in {@link AppConfig#stringRedisTemplate}, the header in {@link ServerTimingAdvice}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.instrumentation.enabled", havingValue = "true")
+public class InstrumentationConfig implements WebMvcConfigurer {
+
+    @Bean
+    public static BeanPostProcessor timingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(@NonNull Object bean, @NonNull String beanName) {
+                return bean instanceof DataSource ds ? TimingProxies.dataSource(ds) : bean;
+            }
+        };
+    }
+
+    @Bean
+    public FilterRegistrationBean<RequestTimingFilter> requestTimingFilter(
+            @Value("${app.instrumentation.maxQueriesPerRequest}") int maxQueriesPerRequest) {
+        FilterRegistrationBean<RequestTimingFilter> reg = new FilterRegistrationBean<>(new RequestTimingFilter(maxQueriesPerRequest));
+        reg.addUrlPatterns("/api/*");
+        reg.setOrder(Ordered.HIGHEST_PRECEDENCE); // outside the security chain, so JWT checks are included
+        return reg;
+    }
+
+    @Override
+    public void addInterceptors(@NonNull InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull Object handler) {
+                RequestTimings t = RequestTimings.current();
+                if (t != null) t.handlerStartNanos = System.nanoTime();
+                return true;
+            }
+        });
+    }
+}
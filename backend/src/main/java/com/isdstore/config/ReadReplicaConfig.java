@@ -0,0 +1,94 @@
+package com.isdstore.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read/write splitting, active only when app.datasource.replica.urls is set: replaces Boot's pooled
+ * DataSource with primary and replica Hikari pools behind a {@link ReplicaRoutingDataSource}.
+ * The pools are not beans, so the exposed DataSource is the only one the rest of the context sees
+ * (including the timing post-processor in {@link InstrumentationConfig}, which then wraps it once).
+ */
+@Configuration
+@ConditionalOnExpression("!'${app.datasource.replica.urls:}'.isBlank()")
+public class ReadReplicaConfig {
+    private static final Logger log = LoggerFactory.getLogger(ReadReplicaConfig.class);
+
+    private final List<HikariDataSource> pools = new ArrayList<>();
+    private ReplicaRoutingDataSource routing;
+
+    @Bean
+    public DataSource dataSource(DataSourceProperties properties,
+                                 Environment environment,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.datasource.replica.urls}") List<String> replicaUrls,
+                                 @Value("${app.datasource.replica.username}") String replicaUsername,
+                                 @Value("${app.datasource.replica.password}") String replicaPassword,
+                                 @Value("${app.datasource.replica.poolSize}") int replicaPoolSize,
+                                 @Value("${app.datasource.replica.maxLagMs}") long maxLagMs,
+                                 @Value("${app.datasource.replica.lagCheckIntervalMs}") long lagCheckIntervalMs) {
+        // Both pools start from the spring.datasource.hikari settings
+        HikariConfig base = Binder.get(environment)
+                .bind("spring.datasource.hikari", Bindable.ofInstance(new HikariConfig()))
+                .orElseGet(HikariConfig::new);
+        MicrometerMetricsTrackerFactory metrics = new MicrometerMetricsTrackerFactory(meterRegistry);
+
+        HikariDataSource primary = pool(base, metrics, "primary",
+                properties.determineUrl(), properties.determineUsername(), properties.determinePassword(),
+                base.getMaximumPoolSize());
+
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        int i = 1;
+        for (String url : replicaUrls) {
+            if (url.isBlank()) continue;
+            String name = "replica-" + i++;
+            replicas.put(name, pool(base, metrics, name, url.trim(), replicaUsername, replicaPassword, replicaPoolSize));
+        }
+
+        routing = new ReplicaRoutingDataSource(primary, replicas, maxLagMs, lagCheckIntervalMs, meterRegistry);
+        log.info("Routing read-only transactions to {} replica(s), max lag {}ms", replicas.size(), maxLagMs);
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    private HikariDataSource pool(HikariConfig base, MicrometerMetricsTrackerFactory metrics, String name,
+                                  String url, String username, String password, int maxPoolSize) {
+        HikariConfig config = new HikariConfig();
+        base.copyStateTo(config);
+        config.setPoolName(name);
+        config.setJdbcUrl(url);
+        config.setUsername(username);
+        config.setPassword(password);
+        config.setMaximumPoolSize(maxPoolSize);
+        config.setMinimumIdle(Math.min(config.getMinimumIdle(), maxPoolSize));
+        config.setMetricsTrackerFactory(metrics);
+        HikariDataSource ds = new HikariDataSource(config);
+        pools.add(ds);
+        return ds;
+    }
+
+    @PreDestroy
+    void close() {
+        if (routing != null) routing.close();
+        pools.forEach(HikariDataSource::close);
+    }
+}
@@ -0,0 +1,212 @@
+package com.isdstore.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Sends connections acquired by a read-only transaction inside an {@link #onReplica} scope to a read
+ * replica and everything else to the primary. Routing is opt-in: the read-only default of Spring Data's
+ * built-in repository methods (findById, findAll...) must not send a login or a read right after a
+ * write to a lagging replica. Must sit behind a LazyConnectionDataSourceProxy so the scope and the
+ * read-only flag are already set when the physical connection is fetched.
+ * A background check measures each replica's replay lag; replicas that fall behind app.datasource.replica.maxLagMs,
+ * cannot be reached or are not streaming WAL from their upstream are skipped until they recover,
+ * and with none left reads go to the primary.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    static final String PRIMARY = "primary";
+
+    // Zero on a non-standby. NULL on a standby whose WAL receiver is not streaming: it has replayed
+    // everything it received, but receives nothing, so the LSN comparison below would report no lag
+    // however far the primary has moved on. Without pg_read_all_stats the status column reads NULL,
+    // and a running receiver process is taken as streaming. Otherwise zero when the standby has
+    // replayed everything it received (an idle primary writes no new transactions, so the replay
+    // timestamp alone would report growing lag).
+    private static final String LAG_SQL = """
+            SELECT CASE WHEN NOT pg_is_in_recovery() THEN 0
+                WHEN NOT EXISTS (SELECT 1 FROM pg_stat_wal_receiver WHERE COALESCE(status, 'streaming') = 'streaming') THEN NULL
+                WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                ELSE COALESCE(EXTRACT(EPOCH FROM (now() - pg_last_xact_replay_timestamp())) * 1000, 0) END
+            """;
+
+    private static final ThreadLocal<Boolean> FORCE_PRIMARY = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> REPLICA_ALLOWED = new ThreadLocal<>();
+
+    private final List<Replica> replicas = new ArrayList<>();
+    private final AtomicInteger next = new AtomicInteger();
+    private final long maxLagMs;
+    private final ScheduledExecutorService lagChecker;
+    private final Counter primaryRoutes;
+    private final Counter replicaRoutes;
+    private final Counter fallbackRoutes;
+
+    public ReplicaRoutingDataSource(DataSource primary,
+                                    Map<String, DataSource> replicaPools,
+                                    long maxLagMs,
+                                    long lagCheckIntervalMs,
+                                    MeterRegistry meterRegistry) {
+        this.maxLagMs = maxLagMs;
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        replicaPools.forEach((name, ds) -> {
+            Replica replica = new Replica(name, ds);
+            replicas.add(replica);
+            targets.put(name, ds);
+            Gauge.builder("isdstore.db.replica.lag", replica, r -> r.lagMs)
+                    .baseUnit("milliseconds")
+                    .description("Replay lag measured on the replica; -1 when unreachable or not streaming")
+                    .tag("replica", name)
+                    .register(meterRegistry);
+        });
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        afterPropertiesSet();
+
+        this.primaryRoutes = route(meterRegistry, "primary");
+        this.replicaRoutes = route(meterRegistry, "replica");
+        this.fallbackRoutes = route(meterRegistry, "fallback");
+
+        this.lagChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "replica-lag-check");
+            t.setDaemon(true);
+            return t;
+        });
+        lagChecker.scheduleWithFixedDelay(this::checkLag, 0, lagCheckIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    private static Counter route(MeterRegistry meterRegistry, String target) {
+        return Counter.builder("isdstore.db.route")
+                .description("Connections handed out, by routing target")
+                .tag("target", target)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Lets the read-only transactions started by the work run on a replica, for reads that tolerate
+     * replication lag (catalog pages, admin reports). The transaction must start inside the scope:
+     * a connection already bound to a surrounding transaction is reused as is.
+     */
+    public static <T, E extends Exception> T onReplica(Work<T, E> work) throws E {
+        return with(REPLICA_ALLOWED, work);
+    }
+
+    /**
+     * Runs the supplier with read-only work pinned to the primary, for reads that must observe
+     * a write that just committed (e.g. reloading a cache entry right after its invalidation),
+     * even when called from an {@link #onReplica} scope. A transaction that already holds a
+     * connection keeps it, so calling this from inside a replica-routed transaction is a bug.
+     */
+    public static <T> T onPrimary(Supplier<T> work) {
+        if (REPLICA_ALLOWED.get() != null && TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            throw new IllegalStateException("onPrimary called inside a transaction that may already hold a replica connection");
+        }
+        return with(FORCE_PRIMARY, work::get);
+    }
+
+    private static <T, E extends Exception> T with(ThreadLocal<Boolean> flag, Work<T, E> work) throws E {
+        Boolean previous = flag.get();
+        flag.set(Boolean.TRUE);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) flag.remove();
+            else flag.set(previous);
+        }
+    }
+
+    @FunctionalInterface
+    public interface Work<T, E extends Exception> {
+        T get() throws E;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (REPLICA_ALLOWED.get() == null || FORCE_PRIMARY.get() != null
+                || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            primaryRoutes.increment();
+            return PRIMARY;
+        }
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            Replica candidate = replicas.get((start + i) % size);
+            if (candidate.healthy) {
+                replicaRoutes.increment();
+                return candidate.name;
+            }
+        }
+        fallbackRoutes.increment();
+        return PRIMARY;
+    }
+
+    void checkLag() {
+        for (Replica replica : replicas) {
+            try (Connection c = replica.dataSource.getConnection();
+                 Statement st = c.createStatement();
+                 ResultSet rs = st.executeQuery(LAG_SQL)) {
+                rs.next();
+                long lag = rs.getLong(1);
+                if (rs.wasNull()) {
+                    if (replica.healthy) {
+                        log.warn("Replica {} removed from rotation: WAL receiver not streaming", replica.name);
+                    }
+                    replica.lagMs = -1;
+                    replica.healthy = false;
+                    continue;
+                }
+                boolean healthy = lag <= maxLagMs;
+                if (healthy != replica.healthy) {
+                    log.info("Replica {} {} (lag={}ms, max={}ms)", replica.name,
+                            healthy ? "back in rotation" : "removed from rotation", lag, maxLagMs);
+                }
+                replica.lagMs = lag;
+                replica.healthy = healthy;
+            } catch (Exception e) {
+                if (replica.healthy) {
+                    log.warn("Replica {} removed from rotation: {}", replica.name, e.getMessage());
+                }
+                replica.lagMs = -1;
+                replica.healthy = false;
+            }
+        }
+    }
+
+    public void close() {
+        lagChecker.shutdownNow();
+    }
+
+    private static final class Replica {
+        final String name;
+        final DataSource dataSource;
+        // Out of rotation until the first lag check succeeds
+        volatile boolean healthy;
+        volatile long lagMs = -1;
+
+        Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+}
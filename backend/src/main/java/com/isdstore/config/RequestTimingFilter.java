@@ -0,0 +1,50 @@
+package com.isdstore.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.lang.NonNull;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Opens a {@link RequestTimings} scope around the whole request (security included) and
+ * writes one summary line when it completes. Requests over the query budget are logged at WARN.
+ */
+public class RequestTimingFilter extends OncePerRequestFilter {
+    private static final Logger log = LoggerFactory.getLogger(RequestTimingFilter.class);
+
+    private final int maxQueriesPerRequest;
+
+    public RequestTimingFilter(int maxQueriesPerRequest) {
+        this.maxQueriesPerRequest = maxQueriesPerRequest;
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        RequestTimings t = RequestTimings.begin();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RequestTimings.end();
+            long now = System.nanoTime();
+            long serialization = t.bodyWriteNanos == 0 ? 0 : now - t.bodyWriteNanos;
+            String summary = String.format(java.util.Locale.ROOT,
+                    "%s %s status=%d total=%.1fms db=%dq/%.1fms redis=%dc/%.1fms serialization=%.1fms",
+                    request.getMethod(), request.getRequestURI(), response.getStatus(),
+                    RequestTimings.millis(now - t.startNanos), t.sqlCount, RequestTimings.millis(t.sqlNanos),
+                    t.redisCount, RequestTimings.millis(t.redisNanos), RequestTimings.millis(serialization));
+            if (t.sqlCount > maxQueriesPerRequest) {
+                log.warn("Query budget exceeded ({} > {}): {}", t.sqlCount, maxQueriesPerRequest, summary);
+            } else {
+                log.info("{}", summary);
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.isdstore.config;
+
+/**
+ * Per-request counters for SQL statements and Redis commands, bound to the request thread
+ * by {@link RequestTimingFilter}. Recording is a no-op outside an instrumented request.
+ */
+public final class RequestTimings {
+    private static final ThreadLocal<RequestTimings> CURRENT = new ThreadLocal<>();
+
+    final long startNanos = System.nanoTime();
+    long handlerStartNanos;
+    long bodyWriteNanos;
+    int sqlCount;
+    long sqlNanos;
+    int redisCount;
+    long redisNanos;
+
+    private RequestTimings() {
+    }
+
+    static RequestTimings begin() {
+        RequestTimings t = new RequestTimings();
+        CURRENT.set(t);
+        return t;
+    }
+
+    static void end() {
+        CURRENT.remove();
+    }
+
+    static RequestTimings current() {
+        return CURRENT.get();
+    }
+
+    static void recordSql(long nanos) {
+        RequestTimings t = CURRENT.get();
+        if (t != null) {
+            t.sqlCount++;
+            t.sqlNanos += nanos;
+        }
+    }
+
+    static void recordRedis(long nanos) {
+        RequestTimings t = CURRENT.get();
+        if (t != null) {
+            t.redisCount++;
+            t.redisNanos += nanos;
+        }
+    }
+
+    static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    /**
+     * Server-Timing value as of now: db, redis, pre-handler (security/JWT) and app time so far.
+     */
+    String serverTiming() {
+        long now = System.nanoTime();
+        long pre = handlerStartNanos == 0 ? 0 : handlerStartNanos - startNanos;
+        return String.format(java.util.Locale.ROOT,
+                "db;dur=%.2f;desc=\"%d queries\", redis;dur=%.2f;desc=\"%d commands\", auth;dur=%.2f, app;dur=%.2f",
+                millis(sqlNanos), sqlCount, millis(redisNanos), redisCount, millis(pre), millis(now - startNanos));
+    }
+}
@@ -0,0 +1,36 @@
+package com.isdstore.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.lang.NonNull;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Adds the Server-Timing header just before the body is serialized, while headers can still be set.
+ * Registered only with {@link InstrumentationConfig}, under the same property.
+ */
+@ControllerAdvice
+@ConditionalOnProperty(name = "app.instrumentation.enabled", havingValue = "true")
+class ServerTimingAdvice implements ResponseBodyAdvice<Object> {
+    @Override
+    public boolean supports(@NonNull MethodParameter returnType, @NonNull Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, @NonNull MethodParameter returnType, @NonNull MediaType contentType,
+                                  @NonNull Class<? extends HttpMessageConverter<?>> converterType,
+                                  @NonNull ServerHttpRequest request, @NonNull ServerHttpResponse response) {
+        RequestTimings t = RequestTimings.current();
+        if (t != null) {
+            t.bodyWriteNanos = System.nanoTime();
+            response.getHeaders().add("Server-Timing", t.serverTiming());
+        }
+        return body;
+    }
+}
@@ -0,0 +1,94 @@
+package com.isdstore.config;
+
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.Set;
+
+/**
+ * JDK proxies that time every SQL statement and Redis command into {@link RequestTimings}.
+ */
+final class TimingProxies {
+    private static final Set<String> REDIS_UNTIMED = Set.of(
+            "close", "isClosed", "getNativeConnection", "isQueueing", "isPipelined", "isSubscribed",
+            "getSubscription", "toString", "hashCode", "equals");
+
+    private TimingProxies() {
+    }
+
+    static DataSource dataSource(DataSource target) {
+        return proxy(DataSource.class, target, (p, m, args) -> {
+            Object result = invoke(target, m, args);
+            return result instanceof Connection c ? connection(c) : result;
+        });
+    }
+
+    static RedisConnectionFactory redisConnectionFactory(RedisConnectionFactory target) {
+        return proxy(RedisConnectionFactory.class, target, (p, m, args) -> {
+            Object result = invoke(target, m, args);
+            return result instanceof RedisConnection c ? redisProxy(RedisConnection.class, c) : result;
+        });
+    }
+
+    private static Connection connection(Connection target) {
+        return proxy(Connection.class, target, (p, m, args) -> {
+            Object result = invoke(target, m, args);
+            if (result instanceof CallableStatement s) return statement(CallableStatement.class, s);
+            if (result instanceof PreparedStatement s) return statement(PreparedStatement.class, s);
+            if (result instanceof Statement s) return statement(Statement.class, s);
+            return result;
+        });
+    }
+
+    private static <T extends Statement> T statement(Class<T> type, T target) {
+        return proxy(type, target, (p, m, args) -> {
+            if (!m.getName().startsWith("execute")) return invoke(target, m, args);
+            long start = System.nanoTime();
+            try {
+                return invoke(target, m, args);
+            } finally {
+                RequestTimings.recordSql(System.nanoTime() - start);
+            }
+        });
+    }
+
+    // Times leaf calls; calls returning a *Commands facet (stringCommands(), scriptingCommands()...) are proxied too
+    private static <T> T redisProxy(Class<T> type, Object target) {
+        return proxy(type, target, (p, m, args) -> {
+            Class<?> returnType = m.getReturnType();
+            if (returnType.isInterface() && returnType.getSimpleName().endsWith("Commands")) {
+                Object facet = invoke(target, m, args);
+                return facet == null ? null : redisProxy(returnType, facet);
+            }
+            if (REDIS_UNTIMED.contains(m.getName())) return invoke(target, m, args);
+            long start = System.nanoTime();
+            try {
+                return invoke(target, m, args);
+            } finally {
+                RequestTimings.recordRedis(System.nanoTime() - start);
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Object target, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static Object invoke(Object target, Method m, Object[] args) throws Throwable {
+        try {
+            return m.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
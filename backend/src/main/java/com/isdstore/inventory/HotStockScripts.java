@@ -0,0 +1,113 @@
+package com.isdstore.inventory;
+
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.List;
+
+/**
+ * Lua scripts over the hot-stock counters (stock:{productId} -> available units) and the holds
+ * that track reservations not yet committed or released (stock:hold:{holdId} hash productId -> quantity,
+ * indexed by creation time in the stock:holds sorted set). stock:held:{productId} sums the open holds
+ * per product, so row-locked checkout can leave those units alone without scanning the holds.
+ */
+final class HotStockScripts {
+
+    // KEYS[1] = holds set, KEYS[2] = hold hash, KEYS[3..n+2] = counters, KEYS[n+3..] = held totals.
+    // ARGV[1] = now millis, ARGV[2] = holdId, ARGV[3..n+2] = requested quantities, ARGV[n+3..] = productIds.
+    // Takes min(requested, available) per line. If any counter is missing nothing is taken and
+    // the reply has -1 at the missing positions, so the caller can seed them and retry.
+    static final RedisScript<List> RESERVE = new DefaultRedisScript<>("""
+            local n = (#KEYS - 2) / 2
+            local out = {}
+            local missing = false
+            for i = 1, n do
+              if redis.call('EXISTS', KEYS[i + 2]) == 0 then
+                out[i] = -1
+                missing = true
+              else
+                out[i] = 0
+              end
+            end
+            if missing then return out end
+            local taken = false
+            for i = 1, n do
+              local available = tonumber(redis.call('GET', KEYS[i + 2])) or 0
+              local take = math.min(tonumber(ARGV[i + 2]), math.max(available, 0))
+              if take > 0 then
+                redis.call('DECRBY', KEYS[i + 2], take)
+                redis.call('INCRBY', KEYS[i + 2 + n], take)
+                redis.call('HSET', KEYS[2], ARGV[i + 2 + n], take)
+                taken = true
+              end
+              out[i] = take
+            end
+            if taken then redis.call('ZADD', KEYS[1], ARGV[1], ARGV[2]) end
+            return out
+            """, List.class);
+
+    // KEYS[1] = counter, KEYS[2] = epoch. ARGV[1] = units available per Postgres, minus open holds,
+    // ARGV[2] = the epoch those holds were read in. Keeps a counter that is already there.
+    // Returns nil, seeding nothing, if the epoch changed since: the holds read may have been lost.
+    static final RedisScript<Long> SEED = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[2]) ~= ARGV[2] then return nil end
+            redis.call('SET', KEYS[1], ARGV[1], 'NX')
+            return tonumber(redis.call('GET', KEYS[1]))
+            """, Long.class);
+
+    // KEYS[1] = holds set, KEYS[2] = hold hash, KEYS[3..n+2] = counters, KEYS[n+3..] = held totals.
+    // ARGV[1] = holdId, ARGV[2..] = productIds (aligned with the counters).
+    // Gives the held units back; a no-op if the hold was already resolved. A counter dropped meanwhile
+    // stays absent: its next seed reads Postgres, where these units were never taken.
+    static final RedisScript<Long> RELEASE = new DefaultRedisScript<>("""
+            if redis.call('EXISTS', KEYS[2]) == 0 then
+              redis.call('ZREM', KEYS[1], ARGV[1])
+              return 0
+            end
+            local n = (#KEYS - 2) / 2
+            for i = 1, n do
+              local qty = redis.call('HGET', KEYS[2], ARGV[i + 1])
+              if qty then
+                if redis.call('EXISTS', KEYS[i + 2]) == 1 then redis.call('INCRBY', KEYS[i + 2], qty) end
+                redis.call('DECRBY', KEYS[i + 2 + n], qty)
+              end
+            end
+            redis.call('DEL', KEYS[2])
+            redis.call('ZREM', KEYS[1], ARGV[1])
+            return 1
+            """, Long.class);
+
+    // KEYS[1] = holds set, KEYS[2] = hold hash, KEYS[3..] = held totals. ARGV[1] = holdId, ARGV[2..] = productIds.
+    // The units stay taken (now in the ledger); a no-op if the hold was already resolved.
+    static final RedisScript<Long> CONFIRM = new DefaultRedisScript<>("""
+            if redis.call('EXISTS', KEYS[2]) == 1 then
+              for i = 3, #KEYS do
+                local qty = redis.call('HGET', KEYS[2], ARGV[i - 1])
+                if qty then redis.call('DECRBY', KEYS[i], qty) end
+              end
+            end
+            redis.call('ZREM', KEYS[1], ARGV[1])
+            return redis.call('DEL', KEYS[2])
+            """, Long.class);
+
+    // KEYS[1] = counter. ARGV[1] = delta. Only adjusts a seeded counter; an absent one is seeded from Postgres later.
+    static final RedisScript<Long> ADJUST = new DefaultRedisScript<>("""
+            if redis.call('EXISTS', KEYS[1]) == 1 then return redis.call('INCRBY', KEYS[1], ARGV[1]) end
+            return nil
+            """, Long.class);
+
+    // KEYS[1..n] = counters, KEYS[n+1..] = held totals. Drops the counters and returns the units held per product,
+    // in one step: any hold opened afterwards had to seed a new counter first.
+    static final RedisScript<List> DROP = new DefaultRedisScript<>("""
+            local n = #KEYS / 2
+            local out = {}
+            for i = 1, n do
+              redis.call('DEL', KEYS[i])
+              out[i] = tonumber(redis.call('GET', KEYS[i + n])) or 0
+            end
+            return out
+            """, List.class);
+
+    private HotStockScripts() {
+    }
+}
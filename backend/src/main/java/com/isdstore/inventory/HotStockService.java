@@ -0,0 +1,453 @@
+package com.isdstore.inventory;
+
+import com.isdstore.products.ProductCatalogCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot-inventory mode for flash sales: stock of products flagged products.hot_stock is reserved from
+ * Redis counters instead of locking their rows, so concurrent checkouts no longer queue on Postgres.
+ * <p>
+ * Invariant: counter = products.stock - unreconciled ledger rows - open holds.
+ * A reservation decrements the counters and opens a hold in one script; the checkout transaction
+ * writes the reserved lines to the stock_reservations ledger. After commit the hold is dropped,
+ * after rollback its units go back to the counters. The checkout transaction holds an advisory lock on its hold
+ * from before the hold exists until it ends; holds left behind by a crash, or by a transaction whose outcome is
+ * unknown, are resolved by {@link #sweepHolds()} against the ledger once that lock is free, and
+ * {@link #reconcile()} folds ledger rows into products.stock in batches.
+ * <p>
+ * A counter only holds while no one else changes the product's stock, so it is dropped whenever the
+ * row-locked path sells the product ({@link #claimedUnits}) and all counters are dropped when the mode
+ * starts, since the row-locked path may have sold hot products while it was off. A missing counter is
+ * seeded from Postgres, for products still flagged hot.
+ */
+@Service
+public class HotStockService {
+    private static final Logger log = LoggerFactory.getLogger(HotStockService.class);
+    static final String COUNTER_PREFIX = "stock:";        // stock:{productId} -> available units
+    private static final String HOLD_PREFIX = "stock:hold:"; // stock:hold:{holdId} -> hash productId -> quantity
+    private static final String HOLDS_KEY = "stock:holds";   // zset holdId scored by creation millis
+    private static final String HELD_PREFIX = "stock:held:"; // stock:held:{productId} -> units in open holds
+    private static final String EPOCH_KEY = "stock:epoch";   // "{created millis}:{uuid}", see epoch()
+    // Advisory locks (HOLD_LOCK_CLASS, hash of holdId), held by the checkout transaction owning the hold.
+    // A hash collision only makes the sweeper wait for an unrelated checkout as well.
+    private static final int HOLD_LOCK_CLASS = 0x484f4c44;
+    private static final String HOLD_LOCK_SQL = "SELECT pg_advisory_xact_lock(?, ?)";
+    // Run outside a transaction, so a lock it takes is given back with the statement
+    private static final String HOLD_ENDED_SQL = "SELECT pg_try_advisory_xact_lock(?, ?)";
+    private static final String NOW_MILLIS_SQL = "SELECT (EXTRACT(EPOCH FROM clock_timestamp()) * 1000)::bigint";
+    private static final String EARLIER_HOLDERS_SQL = """
+            SELECT EXISTS (
+                SELECT 1 FROM pg_locks l JOIN pg_stat_activity a ON a.pid = l.pid
+                WHERE l.locktype = 'advisory' AND l.classid = ? AND l.objsubid = 2 AND l.granted
+                  AND l.pid <> pg_backend_pid() AND a.xact_start < to_timestamp(? / 1000.0))
+            """;
+
+    private static final String INSERT_LEDGER_SQL =
+            "INSERT INTO stock_reservations (hold_id, product_id, quantity) VALUES (?, ?, ?)";
+    private static final String AVAILABLE_SQL = """
+            SELECT p.stock - COALESCE(SUM(r.quantity), 0)
+            FROM products p
+            LEFT JOIN stock_reservations r ON r.product_id = p.id AND r.reconciled_at IS NULL
+            WHERE p.id = ? AND p.hot_stock
+            GROUP BY p.stock
+            """;
+    private static final String PENDING_SQL = """
+            SELECT product_id, SUM(quantity) FROM stock_reservations
+            WHERE reconciled_at IS NULL AND product_id = ANY(?)
+            GROUP BY product_id
+            """;
+    private static final String HOLD_COMMITTED_SQL = "SELECT EXISTS (SELECT 1 FROM stock_reservations WHERE hold_id = ?)";
+    // One statement: marks a batch of ledger rows reconciled and subtracts their totals from products.stock.
+    // Product rows are locked in id order, like checkout does, so concurrent reconcilers cannot deadlock.
+    private static final String RECONCILE_SQL = """
+            WITH batch AS (
+                UPDATE stock_reservations SET reconciled_at = NOW()
+                WHERE id IN (
+                    SELECT id FROM stock_reservations
+                    WHERE reconciled_at IS NULL
+                    ORDER BY id
+                    LIMIT ?
+                    FOR UPDATE SKIP LOCKED)
+                RETURNING product_id, quantity),
+            totals AS (
+                SELECT product_id, SUM(quantity) AS quantity FROM batch GROUP BY product_id),
+            locked AS (
+                SELECT p.id FROM products p JOIN totals t ON t.product_id = p.id ORDER BY p.id FOR UPDATE OF p)
+            UPDATE products p SET stock = p.stock - t.quantity
+            FROM totals t
+            WHERE p.id = t.product_id AND p.id IN (SELECT id FROM locked)
+            RETURNING p.id
+            """;
+    private static final String PURGE_SQL =
+            "DELETE FROM stock_reservations WHERE reconciled_at < NOW() - (? * INTERVAL '1 hour')";
+
+    private final StringRedisTemplate redis;
+    private final JdbcTemplate jdbcTemplate;
+    private final ProductCatalogCache catalogCache;
+    private final boolean enabled;
+    private final int reconcileBatchSize;
+    private final long holdTimeoutMs;
+    private final long retentionHours;
+    private final Timer reserveTimer;
+    private final Timer resolveTimer;
+    private final Counter released;
+    private final Counter recovered;
+    private volatile String settledEpoch;
+
+    public HotStockService(StringRedisTemplate redis,
+                           JdbcTemplate jdbcTemplate,
+                           ProductCatalogCache catalogCache,
+                           MeterRegistry meterRegistry,
+                           @Value("${app.inventory.hot.enabled}") boolean enabled,
+                           @Value("${app.inventory.hot.reconcileBatchSize}") int reconcileBatchSize,
+                           @Value("${app.inventory.hot.holdTimeoutMs}") long holdTimeoutMs,
+                           @Value("${app.inventory.hot.retentionHours}") long retentionHours) {
+        this.redis = redis;
+        this.jdbcTemplate = jdbcTemplate;
+        this.catalogCache = catalogCache;
+        this.enabled = enabled;
+        this.reconcileBatchSize = reconcileBatchSize;
+        this.holdTimeoutMs = holdTimeoutMs;
+        this.retentionHours = retentionHours;
+        this.reserveTimer = Timer.builder("isdstore.redis").description("Redis round trips").tag("op", "stock.reserve").register(meterRegistry);
+        this.resolveTimer = Timer.builder("isdstore.redis").description("Redis round trips").tag("op", "stock.resolve").register(meterRegistry);
+        this.released = Counter.builder("isdstore.stock.holds").tag("result", "released").register(meterRegistry);
+        this.recovered = Counter.builder("isdstore.stock.holds").tag("result", "recovered").register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Reserves stock for hot products inside the caller's transaction, taking min(requested, available) per line.
+     *
+     * @param requested productId -> requested quantity (> 0)
+     * @return productId -> reserved quantity, only for lines that got at least one unit
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Map<UUID, Integer> reserve(Map<UUID, Integer> requested) {
+        Map<UUID, Integer> reserved = new LinkedHashMap<>();
+        if (requested.isEmpty()) return reserved;
+
+        List<UUID> ids = new ArrayList<>(requested.keySet());
+        UUID hold = UUID.randomUUID();
+        String holdId = hold.toString();
+        // Taken before the hold exists, so the sweeper never sees a hold whose owner is not known to be alive
+        jdbcTemplate.query(HOLD_LOCK_SQL, rs -> {
+        }, HOLD_LOCK_CLASS, hold.hashCode());
+        List<Long> taken = runReserve(holdId, ids, requested);
+        if (taken.contains(-1L)) {
+            // Products no longer flagged hot are not seeded: they take nothing here
+            List<UUID> seeded = new ArrayList<>();
+            for (int i = 0; i < ids.size(); i++) {
+                if (taken.get(i) != -1L || seed(ids.get(i))) seeded.add(ids.get(i));
+            }
+            ids = seeded;
+            taken = ids.isEmpty() ? List.of() : runReserve(holdId, ids, requested);
+        }
+        for (int i = 0; i < ids.size(); i++) {
+            long qty = taken.get(i);
+            if (qty > 0) reserved.put(ids.get(i), (int) qty);
+        }
+        if (reserved.isEmpty()) return reserved;
+
+        // Registered before the ledger insert so that a failing insert also gives the units back
+        List<UUID> heldIds = new ArrayList<>(reserved.keySet());
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                try {
+                    if (status == STATUS_COMMITTED) confirm(holdId, heldIds);
+                    else if (status == STATUS_ROLLED_BACK) release(holdId, heldIds);
+                    // STATUS_UNKNOWN: the ledger rows may have committed; left to the sweeper
+                } catch (Exception e) {
+                    // Left to the sweeper, which checks the ledger to tell commit from rollback
+                    log.warn("Failed to resolve stock hold {}: {}", holdId, e.getMessage());
+                }
+            }
+        });
+        List<Object[]> rows = new ArrayList<>();
+        reserved.forEach((id, qty) -> rows.add(new Object[]{holdId, id, qty}));
+        jdbcTemplate.batchUpdate(INSERT_LEDGER_SQL, rows);
+        log.info("Reserved hot stock for {} products hold={}", reserved.size(), holdId);
+        return reserved;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Long> runReserve(String holdId, List<UUID> ids, Map<UUID, Integer> requested) {
+        List<String> keys = new ArrayList<>(List.of(HOLDS_KEY, HOLD_PREFIX + holdId));
+        List<String> args = new ArrayList<>(List.of(String.valueOf(System.currentTimeMillis()), holdId));
+        ids.forEach(id -> keys.add(COUNTER_PREFIX + id));
+        ids.forEach(id -> keys.add(HELD_PREFIX + id));
+        ids.forEach(id -> args.add(String.valueOf(requested.get(id))));
+        ids.forEach(id -> args.add(id.toString()));
+        List<Long> reply = reserveTimer.record(() -> redis.execute(HotStockScripts.RESERVE, keys, args.toArray()));
+        if (reply == null || reply.size() != ids.size()) {
+            throw new IllegalStateException("Unexpected reply from hot stock reservation");
+        }
+        return reply;
+    }
+
+    // Reads the open holds before Postgres: a hold that commits in between is then subtracted twice,
+    // never missed, so a racing seed can only undercount. Returns false if the product is not hot.
+    private boolean seed(UUID productId) {
+        String epoch = epoch();
+        String held = redis.opsForValue().get(HELD_PREFIX + productId);
+        List<Long> available = jdbcTemplate.queryForList(AVAILABLE_SQL, Long.class, productId);
+        if (available.isEmpty()) {
+            log.info("Not seeding hot stock counter product={}: no longer flagged hot", productId);
+            return false;
+        }
+        // Below zero only if the total was lost under holds that have resolved since
+        long units = Math.max(0, available.get(0) - (held == null ? 0 : Math.max(0, Long.parseLong(held))));
+        Long counter = redis.execute(HotStockScripts.SEED, List.of(COUNTER_PREFIX + productId, EPOCH_KEY), String.valueOf(units), epoch);
+        if (counter == null) {
+            throw new HotStockUnavailableException("Hot stock keys were lost while seeding product " + productId);
+        }
+        log.info("Seeded hot stock counter product={} units={}", productId, counter);
+        return true;
+    }
+
+    /**
+     * Redis losing its data also loses the open holds and held totals, while the transactions owning those holds
+     * may still commit their ledger rows: a seed would then count their units as available. The epoch key goes
+     * with the rest, so its absence marks the loss. It is recreated stamped with the database clock, and nothing
+     * is seeded while a transaction that started before then still holds a hold lock.
+     */
+    private String epoch() {
+        String epoch = redis.opsForValue().get(EPOCH_KEY);
+        if (epoch == null) {
+            Long now = jdbcTemplate.queryForObject(NOW_MILLIS_SQL, Long.class);
+            redis.opsForValue().setIfAbsent(EPOCH_KEY, now + ":" + UUID.randomUUID());
+            epoch = redis.opsForValue().get(EPOCH_KEY);
+            if (epoch == null) throw new HotStockUnavailableException("Hot stock epoch was lost again");
+            log.warn("Hot stock epoch missing, started {}", epoch);
+        }
+        // Holds opened later are in the new epoch's totals, so one clear check per epoch is enough
+        if (epoch.equals(settledEpoch)) return epoch;
+        long started = Long.parseLong(epoch.substring(0, epoch.indexOf(':')));
+        if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(EARLIER_HOLDERS_SQL, Boolean.class, HOLD_LOCK_CLASS, started))) {
+            throw new HotStockUnavailableException("Checkouts holding stock from before Redis lost its holds are still running");
+        }
+        settledEpoch = epoch;
+        return epoch;
+    }
+
+    private void confirm(String holdId, List<UUID> productIds) {
+        List<String> keys = new ArrayList<>(List.of(HOLDS_KEY, HOLD_PREFIX + holdId));
+        List<String> args = new ArrayList<>(List.of(holdId));
+        for (UUID id : productIds) {
+            keys.add(HELD_PREFIX + id);
+            args.add(id.toString());
+        }
+        resolveTimer.record(() -> redis.execute(HotStockScripts.CONFIRM, keys, args.toArray()));
+    }
+
+    private void release(String holdId, List<UUID> productIds) {
+        List<String> keys = new ArrayList<>(List.of(HOLDS_KEY, HOLD_PREFIX + holdId));
+        List<String> args = new ArrayList<>(List.of(holdId));
+        productIds.forEach(id -> keys.add(COUNTER_PREFIX + id));
+        productIds.forEach(id -> keys.add(HELD_PREFIX + id));
+        productIds.forEach(id -> args.add(id.toString()));
+        Long result = resolveTimer.record(() -> redis.execute(HotStockScripts.RELEASE, keys, args.toArray()));
+        if (result != null && result > 0) {
+            released.increment();
+            log.info("Released stock hold {}", holdId);
+        }
+    }
+
+    /**
+     * Units of the given products that row-locked checkout must leave alone: committed reservations not yet
+     * folded into products.stock and, for products that may have a counter, units in open holds.
+     * Those counters are dropped first, so any later reservation has to seed again from the stock this
+     * transaction leaves behind. Call with the product rows locked.
+     *
+     * @param counterBacked the products whose counters to drop and holds to count
+     * @return productId -> units, only for products with any
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Map<UUID, Integer> claimedUnits(Collection<UUID> productIds, Collection<UUID> counterBacked) {
+        Map<UUID, Integer> claimed = new HashMap<>();
+        if (productIds.isEmpty()) return claimed;
+        if (!counterBacked.isEmpty()) {
+            List<UUID> ids = new ArrayList<>(counterBacked);
+            List<Long> held = dropCounters(ids);
+            for (int i = 0; i < ids.size(); i++) {
+                if (held.get(i) > 0) claimed.merge(ids.get(i), held.get(i).intValue(), Integer::sum);
+            }
+            // With the mode off here but on elsewhere (a rolling switch), a seed there may still read
+            // the stock from before this commit; with it on, rows sold here are unflagged and never seeded
+            if (!enabled) TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    try {
+                        dropCounters(ids);
+                    } catch (Exception e) {
+                        log.warn("Failed to drop hot stock counters for {} products: {}", ids.size(), e.getMessage());
+                    }
+                }
+            });
+        }
+        jdbcTemplate.query(PENDING_SQL,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", productIds.toArray())),
+                rs -> {
+                    claimed.merge(rs.getObject(1, UUID.class), rs.getInt(2), Integer::sum);
+                });
+        return claimed;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Long> dropCounters(List<UUID> productIds) {
+        List<String> keys = new ArrayList<>();
+        productIds.forEach(id -> keys.add(COUNTER_PREFIX + id));
+        productIds.forEach(id -> keys.add(HELD_PREFIX + id));
+        List<Long> held = redis.execute(HotStockScripts.DROP, keys);
+        if (held == null || held.size() != productIds.size()) {
+            throw new IllegalStateException("Unexpected reply from hot stock counter drop");
+        }
+        return held;
+    }
+
+    /**
+     * Drops every counter when the mode starts: while it was off, checkout sold hot products from their rows
+     * and admin changes skipped the counters. Each counter is seeded again on next use; holds stay as they are.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resetCounters() {
+        if (!enabled) return;
+        long dropped = 0;
+        ScanOptions options = ScanOptions.scanOptions().match(COUNTER_PREFIX + "*").count(1000).build();
+        try (Cursor<String> keys = redis.scan(options)) {
+            List<String> batch = new ArrayList<>();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                if (isCounterKey(key)) batch.add(key);
+                if (batch.size() == 500 || (!keys.hasNext() && !batch.isEmpty())) {
+                    dropped += redis.delete(batch);
+                    batch.clear();
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Failed to reset hot stock counters: {}", e.getMessage());
+            return;
+        }
+        log.info("Hot inventory mode on: dropped {} stock counters, to be seeded from Postgres", dropped);
+    }
+
+    // stock:{productId}, as opposed to the hold and held-total keys sharing the prefix
+    private static boolean isCounterKey(String key) {
+        try {
+            UUID.fromString(key.substring(COUNTER_PREFIX.length()));
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Applies an admin stock change to the counter once the product update commits,
+     * keeping the invariant without touching open holds or the ledger.
+     */
+    public void adjustAfterCommit(UUID productId, int delta) {
+        if (!enabled || delta == 0) return;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    redis.execute(HotStockScripts.ADJUST, List.of(COUNTER_PREFIX + productId), String.valueOf(delta));
+                } catch (Exception e) {
+                    log.error("Failed to adjust hot stock counter product={} delta={}: {}", productId, delta, e.getMessage());
+                }
+            }
+        });
+    }
+
+    /**
+     * Folds committed reservations into products.stock and evicts the changed products from the catalog cache.
+     * Runs even with the mode switched off, so ledger rows written before a switch-off are still applied.
+     */
+    @Scheduled(fixedDelayString = "${app.inventory.hot.reconcileIntervalMs}")
+    public void reconcile() {
+        try {
+            List<UUID> products = jdbcTemplate.queryForList(RECONCILE_SQL, UUID.class, reconcileBatchSize);
+            if (products.isEmpty()) return;
+            catalogCache.invalidate(products);
+            log.info("Reconciled hot stock for {} products", products.size());
+        } catch (Exception e) {
+            log.warn("Hot stock reconciliation failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Resolves holds older than holdTimeoutMs, left open by an instance that died between
+     * reserving and completing its transaction: committed if the ledger has the hold, released otherwise.
+     * A hold whose lock is still held belongs to a transaction that has not ended yet and is left alone.
+     */
+    @Scheduled(fixedDelayString = "${app.inventory.hot.sweepIntervalMs}")
+    public void sweepHolds() {
+        if (!enabled) return;
+        try {
+            Set<String> stale = redis.opsForZSet().rangeByScore(HOLDS_KEY, 0, System.currentTimeMillis() - holdTimeoutMs, 0, 100);
+            if (stale == null) return;
+            for (String holdId : stale) {
+                // Once the lock is free the owner has committed or rolled back, and the ledger check below sees which
+                Integer key = UUID.fromString(holdId).hashCode();
+                if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(HOLD_ENDED_SQL, Boolean.class, HOLD_LOCK_CLASS, key))) {
+                    log.info("Stock hold {} is past holdTimeoutMs but its transaction is still running", holdId);
+                    continue;
+                }
+                List<UUID> productIds = new ArrayList<>();
+                for (Object field : redis.opsForHash().keys(HOLD_PREFIX + holdId)) {
+                    productIds.add(UUID.fromString(field.toString()));
+                }
+                if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(HOLD_COMMITTED_SQL, Boolean.class, holdId))) {
+                    confirm(holdId, productIds);
+                } else {
+                    release(holdId, productIds);
+                }
+                recovered.increment();
+                log.warn("Resolved abandoned stock hold {}", holdId);
+            }
+        } catch (Exception e) {
+            log.warn("Stock hold sweep failed: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelay = 1, timeUnit = TimeUnit.HOURS)
+    public void purge() {
+        try {
+            int deleted = jdbcTemplate.update(PURGE_SQL, retentionHours);
+            if (deleted > 0) log.info("Purged {} reconciled stock reservations", deleted);
+        } catch (Exception e) {
+            log.warn("Stock reservation purge failed: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.isdstore.inventory;
+
+/**
+ * Thrown when a hot stock counter cannot be seeded safely yet, after Redis lost the open holds;
+ * mapped to 503 by OrderController.
+ */
+public class HotStockUnavailableException extends RuntimeException {
+    public HotStockUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,48 @@
+package com.isdstore.orders;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.isdstore.cart.CartService;
+import com.isdstore.outbox.OutboxEvent;
+import com.isdstore.outbox.OutboxHandler;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Empties the cart once the order is committed. Takes off only the quantities that were in the
+ * cart at checkout, once per order, so neither a late delivery nor a retry removes units the
+ * user added afterwards.
+ */
+@Component
+public class CartClearingHandler implements OutboxHandler {
+    private final CartService cartService;
+
+    public CartClearingHandler(CartService cartService) {
+        this.cartService = cartService;
+    }
+
+    @Override
+    public String eventType() {
+        return OrderEvents.ORDER_CREATED;
+    }
+
+    @Override
+    public void handle(OutboxEvent event) {
+        JsonNode payload = event.getPayload();
+        UUID userId = UUID.fromString(payload.path("userId").asText());
+        UUID orderId = UUID.fromString(payload.path("orderId").asText());
+        Map<UUID, Integer> quantities = new LinkedHashMap<>();
+        JsonNode cartQuantities = payload.path("cartQuantities");
+        if (cartQuantities.isObject()) {
+            cartQuantities.fields().forEachRemaining(e -> quantities.put(UUID.fromString(e.getKey()), e.getValue().asInt()));
+        } else {
+            // Written before quantities were recorded: remove the whole lines, as those events did
+            for (JsonNode id : payload.path("cartProductIds")) {
+                quantities.put(UUID.fromString(id.asText()), Integer.MAX_VALUE);
+            }
+        }
+        cartService.removeItems(userId, orderId, quantities);
+    }
+}
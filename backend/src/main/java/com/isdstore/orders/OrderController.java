@@ -6,24 +6,40 @@ import com.isdstore.cart.CartService;
 import com.isdstore.common.dto.CartDTO;
 import com.isdstore.common.dto.CartItemDTO;
 import com.isdstore.common.dto.OrderDTO;
-import com.isdstore.common.dto.OrderItemViewDTO;
+import com.isdstore.common.dto.OrderItemDTO;
+import com.isdstore.common.dto.OrderPageDTO;
 import com.isdstore.common.entity.Order;
-import com.isdstore.common.entity.Product;
 import com.isdstore.common.entity.User;
+import com.isdstore.common.repo.KeysetCursor;
+import com.isdstore.common.repo.OrderFilter;
 import com.isdstore.common.repo.OrderRepository;
-import com.isdstore.common.repo.ProductRepository;
 import com.isdstore.common.repo.UserRepository;
+import com.isdstore.config.ReplicaRoutingDataSource;
+import com.isdstore.inventory.HotStockUnavailableException;
+import com.isdstore.outbox.OutboxService;
+import com.isdstore.products.ProductCatalogCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.web.bind.annotation.*;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.web.bind.annotation.*;
 
-import java.util.Collections;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -36,15 +52,32 @@ public class OrderController {
 
     private final OrderRepository orderRepository;
     private final UserRepository userRepository;
-    private final ProductRepository productRepository;
+    private final ProductCatalogCache catalogCache;
     private final CartService cartService;
+    private final StockReservationService stockReservationService;
+    private final OrderViewMapper orderViewMapper;
+    private final OrderExportService orderExportService;
+    private final OutboxService outboxService;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+    private final MeterRegistry meterRegistry;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
-    public OrderController(OrderRepository orderRepository, UserRepository userRepository, ProductRepository productRepository, CartService cartService) {
+    public OrderController(OrderRepository orderRepository, UserRepository userRepository, ProductCatalogCache catalogCache, CartService cartService, StockReservationService stockReservationService, OrderViewMapper orderViewMapper, OrderExportService orderExportService, OutboxService outboxService,
+                           @Value("${app.orders.admin.page.defaultSize}") int defaultPageSize,
+                           @Value("${app.orders.admin.page.maxSize}") int maxPageSize,
+                           MeterRegistry meterRegistry) {
         this.orderRepository = orderRepository;
         this.userRepository = userRepository;
-        this.productRepository = productRepository;
+        this.catalogCache = catalogCache;
         this.cartService = cartService;
+        this.stockReservationService = stockReservationService;
+        this.orderViewMapper = orderViewMapper;
+        this.orderExportService = orderExportService;
+        this.outboxService = outboxService;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+        this.meterRegistry = meterRegistry;
     }
 
     @PostMapping("/checkout")
@@ -55,49 +88,51 @@ public class OrderController {
         CartDTO cart = cartService.getCart(userId);
         if (cart.getItems().isEmpty()) {
             log.warn("Checkout attempted with empty cart user={}", userId);
+            checkoutOutcome("empty_cart");
             return ResponseEntity.badRequest().body("Cart is empty");
         }
         Optional<User> userOpt = userRepository.findById(userId);
         if (userOpt.isEmpty()) {
             log.error("User not found for checkout user={}", userId);
+            checkoutOutcome("user_not_found");
             return ResponseEntity.badRequest().body("User not found");
         }
 
-        // Adjust quantities based on available stock and compute total
-        List<CartItemDTO> adjusted = new ArrayList<>();
-        int totalCents = 0;
+        // Reserve what is available for every line in one locked, batched pass
+        Map<UUID, Integer> requested = new LinkedHashMap<>();
         for (CartItemDTO it : cart.getItems()) {
             if (it.getProductId() == null || it.getQuantity() == null) continue;
-            UUID pid = it.getProductId();
-            int requested = Math.max(0, it.getQuantity());
-            if (requested == 0) continue;
-
-            Product p = productRepository.findById(pid).orElse(null);
-            if (p == null) {
-                log.warn("Product {} in cart for user {} not found; skipping", pid, userId);
-                continue;
-            }
-            int available = Math.max(0, p.getStock() == null ? 0 : p.getStock());
-            int price = Math.max(0, p.getPriceCents() == null ? 0 : p.getPriceCents());
-            int qtyToBuy = Math.min(requested, available);
-            if (qtyToBuy <= 0) {
-                log.info("Product {} has no stock; requested={} available=0 user={}", pid, requested, userId);
-                continue;
-            }
-
-            // Decrement stock
-            p.setStock(available - qtyToBuy);
-            productRepository.save(p);
-
-            CartItemDTO adj = new CartItemDTO();
-            adj.setProductId(pid);
-            adj.setQuantity(qtyToBuy);
+            int qty = Math.max(0, it.getQuantity());
+            if (qty > 0) requested.merge(it.getProductId(), qty, Integer::sum);
+        }
+        // Title and unit price are snapshotted so history rendering needs no product lookups
+        List<ReservedItem> reserved;
+        try {
+            reserved = stockReservationService.reserve(requested);
+        } catch (HotStockUnavailableException e) {
+            // Lines reserved before the failure must not commit
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            log.warn("Checkout deferred for user={}: {}", userId, e.getMessage());
+            checkoutOutcome("stock_unavailable");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body("Stock is being recovered, retry shortly");
+        }
+        List<OrderItemDTO> adjusted = new ArrayList<>();
+        int totalCents = 0;
+        for (ReservedItem r : reserved) {
+            OrderItemDTO adj = new OrderItemDTO();
+            adj.setProductId(r.getProductId());
+            adj.setQuantity(r.getQuantity());
+            adj.setTitle(r.getTitle());
+            adj.setUnitPriceCents(r.getUnitPriceCents());
             adjusted.add(adj);
-            totalCents += price * qtyToBuy;
+            totalCents += r.getTotalCents();
         }
 
         if (adjusted.isEmpty()) {
             log.warn("Checkout found no available items for user={}", userId);
+            checkoutOutcome("out_of_stock");
             return ResponseEntity.badRequest().body("No items available in stock");
         }
 
@@ -106,6 +141,7 @@ public class OrderController {
             itemsJson = objectMapper.writeValueAsString(adjusted);
         } catch (JsonProcessingException e) {
             log.error("Failed to serialize adjusted order items for user {}: {}", userId, e.getMessage());
+            checkoutOutcome("error");
             return ResponseEntity.internalServerError().body("Failed to create order");
         }
 
@@ -118,22 +154,91 @@ public class OrderController {
         Order saved = orderRepository.save(order);
         log.info("Order created id={} user={} totalCents={}", saved.getId(), userId, saved.getTotalCents());
 
-        // Clear the cart in Redis
-        cartService.clearCart(userId);
+        // Stock changed: drop the cached rows once the transaction commits
+        catalogCache.invalidate(adjusted.stream().map(OrderItemDTO::getProductId).collect(Collectors.toList()));
+
+        // Post-order side effects (cart clearing first) run from the outbox once this transaction commits
+        Map<UUID, Integer> cartQuantities = new LinkedHashMap<>();
+        for (CartItemDTO it : cart.getItems()) {
+            if (it.getProductId() != null && it.getQuantity() != null) cartQuantities.merge(it.getProductId(), it.getQuantity(), Integer::sum);
+        }
+        outboxService.append(OrderEvents.ORDER_CREATED, saved.getId(),
+                new OrderEvents.OrderCreated(saved.getId(), userId, saved.getTotalCents(), cartQuantities));
 
-        OrderDTO dto = toDto(saved);
+        OrderDTO dto = orderViewMapper.toDto(saved);
+        checkoutOutcome("success");
         return ResponseEntity.ok(dto);
     }
 
     @GetMapping("/orders")
-    public List<OrderDTO> myOrders() {
+    public List<OrderDTO> myOrders(@RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+                                   @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to) {
         UUID userId = currentUserId();
-        return orderRepository.findByUserIdOrderByCreatedAtDesc(userId).stream().map(this::toDto).collect(Collectors.toList());
+        // A day past now tolerates clock skew between instances stamping createdAt
+        Instant upper = to != null ? to : Instant.now().plus(1, ChronoUnit.DAYS);
+        // The whole history unless from is given, which also lets Postgres skip older monthly partitions
+        List<Order> orders = from != null
+                ? orderRepository.findByUserIdInRange(userId, from, upper)
+                : orderRepository.findByUserIdBefore(userId, upper);
+        return orderViewMapper.toDtos(orders);
     }
 
     @GetMapping("/admin/orders")
-    public List<OrderDTO> allOrders() {
-        return orderRepository.findAll().stream().map(this::toDto).collect(Collectors.toList());
+    public ResponseEntity<?> allOrders(@RequestParam(name = "status", required = false) String status,
+                                       @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+                                       @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+                                       @RequestParam(name = "userId", required = false) UUID userId,
+                                       @RequestParam(name = "cursor", required = false) String cursor,
+                                       @RequestParam(name = "size", required = false) Integer size) {
+        int pageSize = size == null ? defaultPageSize : Math.max(1, Math.min(size, maxPageSize));
+        KeysetCursor after = null;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                after = KeysetCursor.decode(cursor);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body("Invalid cursor");
+            }
+        }
+        // Fetch one extra row to know whether another page exists
+        // Admin listing: tolerates replica lag, unlike a user's own orders right after checkout
+        OrderFilter filter = filter(status, from, to, userId);
+        KeysetCursor start = after;
+        List<Order> orders = ReplicaRoutingDataSource.onReplica(() -> orderRepository.findPage(filter, start, pageSize + 1));
+        boolean hasMore = orders.size() > pageSize;
+        if (hasMore) orders = orders.subList(0, pageSize);
+
+        OrderPageDTO page = new OrderPageDTO();
+        page.setItems(orderViewMapper.toDtos(orders));
+        if (hasMore) {
+            Order last = orders.get(orders.size() - 1);
+            page.setNextCursor(KeysetCursor.encode(last.getCreatedAt(), last.getId()));
+        }
+        return ResponseEntity.ok(page);
+    }
+
+    @GetMapping(value = "/admin/orders/export", produces = "application/x-ndjson")
+    public void exportOrders(@RequestParam(name = "status", required = false) String status,
+                             @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+                             @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+                             @RequestParam(name = "userId", required = false) UUID userId,
+                             HttpServletResponse response) throws IOException {
+        response.setContentType("application/x-ndjson");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"orders.ndjson\"");
+        OrderFilter filter = filter(status, from, to, userId);
+        ReplicaRoutingDataSource.onReplica(() -> orderExportService.writeNdjson(filter, response.getOutputStream()));
+    }
+
+    private void checkoutOutcome(String outcome) {
+        meterRegistry.counter("isdstore.checkout", "outcome", outcome).increment();
+    }
+
+    private static OrderFilter filter(String status, Instant from, Instant to, UUID userId) {
+        OrderFilter f = new OrderFilter();
+        f.setStatus(status == null || status.isBlank() ? null : status);
+        f.setFrom(from);
+        f.setTo(to);
+        f.setUserId(userId);
+        return f;
     }
 
     private UUID currentUserId() {
@@ -143,39 +248,4 @@ public class OrderController {
         }
         return UUID.fromString(auth.getPrincipal().toString());
     }
-
-    private OrderDTO toDto(Order o) {
-        OrderDTO dto = new OrderDTO();
-        dto.setId(o.getId());
-        if (o.getUser() != null) {
-            dto.setUserId(o.getUser().getId());
-            dto.setUserEmail(o.getUser().getEmail());
-        } else {
-            dto.setUserId(null);
-            dto.setUserEmail(null);
-        }
-        try {
-            List<CartItemDTO> items = objectMapper.readValue(o.getItems(), objectMapper.getTypeFactory().constructCollectionType(List.class, CartItemDTO.class));
-            // Map to view items with product titles
-            List<OrderItemViewDTO> viewItems = items.stream().map(it -> {
-                OrderItemViewDTO v = new OrderItemViewDTO();
-                v.setQuantity(it.getQuantity());
-                try {
-                    UUID pid = it.getProductId();
-                    Product p = productRepository.findById(pid).orElse(null);
-                    v.setTitle(p != null ? p.getTitle() : pid.toString());
-                } catch (Exception ex) {
-                    v.setTitle("Unknown product");
-                }
-                return v;
-            }).collect(Collectors.toList());
-            dto.setItems(viewItems);
-        } catch (Exception e) {
-            dto.setItems(Collections.emptyList());
-        }
-        dto.setTotalCents(o.getTotalCents());
-        dto.setStatus(o.getStatus());
-        dto.setCreatedAt(o.getCreatedAt());
-        return dto;
-    }
 }
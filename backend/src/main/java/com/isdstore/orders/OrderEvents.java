@@ -0,0 +1,28 @@
+package com.isdstore.orders;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Outbox event types and payloads emitted by the order flow.
+ */
+public final class OrderEvents {
+    public static final String ORDER_CREATED = "order.created";
+
+    @Data
+    @AllArgsConstructor
+    public static class OrderCreated {
+        private UUID orderId;
+        private UUID userId;
+        private int totalCents;
+        // Quantity of every cart line at checkout, including lines that could not be reserved.
+        // Events written before this field carry cartProductIds instead (see CartClearingHandler)
+        private Map<UUID, Integer> cartQuantities;
+    }
+
+    private OrderEvents() {
+    }
+}
@@ -0,0 +1,80 @@
+package com.isdstore.orders;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.isdstore.common.dto.OrderDTO;
+import com.isdstore.common.entity.Order;
+import com.isdstore.common.repo.OrderFilter;
+import com.isdstore.common.repo.OrderRepository;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Streams orders as NDJSON through a server-side JDBC cursor. Rows are rendered in chunks
+ * and the persistence context is cleared after each one, so heap use does not grow with
+ * the number of orders.
+ */
+@Service
+public class OrderExportService {
+    private static final Logger log = LoggerFactory.getLogger(OrderExportService.class);
+
+    private final OrderRepository orderRepository;
+    private final OrderViewMapper orderViewMapper;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+    private final int fetchSize;
+
+    public OrderExportService(OrderRepository orderRepository,
+                              OrderViewMapper orderViewMapper,
+                              ObjectMapper objectMapper,
+                              EntityManager entityManager,
+                              @Value("${app.orders.export.fetchSize}") int fetchSize) {
+        this.orderRepository = orderRepository;
+        this.orderViewMapper = orderViewMapper;
+        this.objectMapper = objectMapper;
+        this.entityManager = entityManager;
+        this.fetchSize = fetchSize;
+    }
+
+    // Postgres only honours the fetch size (cursor mode) with autocommit off, hence the transaction
+    @Transactional(readOnly = true)
+    public long writeNdjson(OrderFilter filter, OutputStream out) throws IOException {
+        long written = 0;
+        try (Stream<Order> stream = orderRepository.streamAll(filter, fetchSize)) {
+            Iterator<Order> it = stream.iterator();
+            List<Order> chunk = new ArrayList<>(fetchSize);
+            while (it.hasNext()) {
+                chunk.add(it.next());
+                if (chunk.size() == fetchSize) {
+                    written += writeChunk(chunk, out);
+                }
+            }
+            written += writeChunk(chunk, out);
+        }
+        log.info("Exported {} orders", written);
+        return written;
+    }
+
+    private int writeChunk(List<Order> chunk, OutputStream out) throws IOException {
+        if (chunk.isEmpty()) return 0;
+        for (OrderDTO dto : orderViewMapper.toDtos(chunk)) {
+            out.write(objectMapper.writeValueAsBytes(dto));
+            out.write('\n');
+        }
+        out.flush();
+        int n = chunk.size();
+        chunk.clear();
+        entityManager.clear();
+        return n;
+    }
+}
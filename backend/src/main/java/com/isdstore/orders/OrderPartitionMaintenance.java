@@ -0,0 +1,129 @@
+package com.isdstore.orders;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the monthly partitions of orders (db/init/009_orders_partitioned.sql) in shape: makes sure
+ * the current month and the next monthsAhead months exist before any order can land in them, and,
+ * when retentionMonths is set, detaches partitions past retention into the orders_archive schema,
+ * where they can be dumped or dropped without touching the live table.
+ * Runs at startup and then hourly; a Postgres advisory lock keeps instances from running the DDL concurrently.
+ */
+@Service
+public class OrderPartitionMaintenance {
+    private static final Logger log = LoggerFactory.getLogger(OrderPartitionMaintenance.class);
+
+    private static final long LOCK_KEY = 0x15D5_0005L;
+    private static final String PREFIX = "orders_p";
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("uuuuMM");
+
+    private static final String PARTITIONS_SQL = """
+            SELECT c.relname, i.inhdetachpending
+            FROM pg_inherits i
+            JOIN pg_class c ON c.oid = i.inhrelid
+            WHERE i.inhparent = 'orders'::regclass
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int monthsAhead;
+    private final int retentionMonths;
+
+    public OrderPartitionMaintenance(JdbcTemplate jdbcTemplate,
+                                     @Value("${app.orders.partitions.monthsAhead}") int monthsAhead,
+                                     @Value("${app.orders.partitions.retentionMonths}") int retentionMonths) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+    }
+
+    @Scheduled(fixedDelay = 1, timeUnit = TimeUnit.HOURS)
+    public void maintain() {
+        try {
+            jdbcTemplate.execute((ConnectionCallback<Void>) this::maintain);
+        } catch (Exception e) {
+            log.warn("Order partition maintenance failed: {}", e.getMessage());
+        }
+    }
+
+    private Void maintain(Connection c) throws SQLException {
+        if (!advisory(c, "pg_try_advisory_lock")) return null;
+        try {
+            YearMonth current = YearMonth.now(ZoneOffset.UTC);
+            createAhead(c, current);
+            if (retentionMonths > 0) archiveBefore(c, current.minusMonths(retentionMonths));
+        } finally {
+            advisory(c, "pg_advisory_unlock");
+        }
+        return null;
+    }
+
+    private void createAhead(Connection c, YearMonth current) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement("SELECT create_orders_partition(?)")) {
+            for (int i = 0; i <= monthsAhead; i++) {
+                ps.setObject(1, current.plusMonths(i).atDay(1));
+                ps.execute();
+            }
+        }
+    }
+
+    // Detaches every partition whose month is before the cutoff. DETACH CONCURRENTLY does not block
+    // checkout inserts; it runs outside a transaction (autocommit), and if it is interrupted halfway
+    // the partition stays "detach pending" until the next run finalizes it.
+    private void archiveBefore(Connection c, YearMonth cutoff) throws SQLException {
+        List<String> pending = new ArrayList<>();
+        List<String> expired = new ArrayList<>();
+        try (Statement st = c.createStatement(); ResultSet rs = st.executeQuery(PARTITIONS_SQL)) {
+            while (rs.next()) {
+                String name = rs.getString(1);
+                if (rs.getBoolean(2)) {
+                    pending.add(name);
+                } else if (name.matches(PREFIX + "\\d{6}")
+                        && YearMonth.parse(name.substring(PREFIX.length()), SUFFIX).isBefore(cutoff)) {
+                    expired.add(name);
+                }
+            }
+        }
+        try (Statement st = c.createStatement()) {
+            for (String name : pending) {
+                st.execute("ALTER TABLE orders DETACH PARTITION " + name + " FINALIZE");
+                archive(st, name);
+            }
+            for (String name : expired) {
+                st.execute("ALTER TABLE orders DETACH PARTITION " + name + " CONCURRENTLY");
+                archive(st, name);
+            }
+        }
+    }
+
+    private static void archive(Statement st, String name) throws SQLException {
+        st.execute("ALTER TABLE " + name + " SET SCHEMA orders_archive");
+        log.info("Detached order partition {} into orders_archive", name);
+    }
+
+    private static boolean advisory(Connection c, String function) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement("SELECT " + function + "(?)")) {
+            ps.setLong(1, LOCK_KEY);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.isdstore.orders;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.isdstore.common.dto.OrderDTO;
+import com.isdstore.common.dto.OrderItemDTO;
+import com.isdstore.common.dto.OrderItemViewDTO;
+import com.isdstore.common.entity.Order;
+import com.isdstore.common.entity.Product;
+import com.isdstore.products.ProductCatalogCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Renders orders as {@link OrderDTO}. Items carry a title snapshot taken at checkout;
+ * only older orders without one need a product lookup, done once per page in bulk.
+ */
+@Component
+public class OrderViewMapper {
+    private static final Logger log = LoggerFactory.getLogger(OrderViewMapper.class);
+
+    private final ProductCatalogCache catalogCache;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    // Reader bound to List<OrderItemDTO> once; ObjectReader is immutable and thread-safe
+    private final ObjectReader itemsReader = objectMapper.readerFor(
+            objectMapper.getTypeFactory().constructCollectionType(List.class, OrderItemDTO.class));
+
+    public OrderViewMapper(ProductCatalogCache catalogCache) {
+        this.catalogCache = catalogCache;
+    }
+
+    public List<OrderItemDTO> readItems(Order o) {
+        try {
+            return itemsReader.readValue(o.getItems());
+        } catch (Exception e) {
+            log.warn("Failed to parse items of order {}: {}", o.getId(), e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    public OrderDTO toDto(Order o) {
+        return toDtos(List.of(o)).get(0);
+    }
+
+    public List<OrderDTO> toDtos(List<Order> orders) {
+        List<List<OrderItemDTO>> itemsPerOrder = new ArrayList<>(orders.size());
+        Set<UUID> missingTitles = new HashSet<>();
+        for (Order o : orders) {
+            List<OrderItemDTO> items = readItems(o);
+            for (OrderItemDTO it : items) {
+                if (it.getTitle() == null && it.getProductId() != null) missingTitles.add(it.getProductId());
+            }
+            itemsPerOrder.add(items);
+        }
+        Map<UUID, Product> products = catalogCache.getAll(missingTitles);
+
+        List<OrderDTO> result = new ArrayList<>(orders.size());
+        for (int i = 0; i < orders.size(); i++) {
+            result.add(toDto(orders.get(i), itemsPerOrder.get(i), products));
+        }
+        return result;
+    }
+
+    private OrderDTO toDto(Order o, List<OrderItemDTO> items, Map<UUID, Product> products) {
+        OrderDTO dto = new OrderDTO();
+        dto.setId(o.getId());
+        if (o.getUser() != null) {
+            dto.setUserId(o.getUser().getId());
+            dto.setUserEmail(o.getUser().getEmail());
+        }
+        List<OrderItemViewDTO> viewItems = new ArrayList<>(items.size());
+        for (OrderItemDTO it : items) {
+            OrderItemViewDTO v = new OrderItemViewDTO();
+            v.setQuantity(it.getQuantity());
+            v.setUnitPriceCents(it.getUnitPriceCents());
+            v.setTitle(titleOf(it, products));
+            viewItems.add(v);
+        }
+        dto.setItems(viewItems);
+        dto.setTotalCents(o.getTotalCents());
+        dto.setStatus(o.getStatus());
+        dto.setCreatedAt(o.getCreatedAt());
+        return dto;
+    }
+
+    private static String titleOf(OrderItemDTO it, Map<UUID, Product> products) {
+        if (it.getTitle() != null) return it.getTitle();
+        if (it.getProductId() == null) return "Unknown product";
+        Product p = products.get(it.getProductId());
+        return p != null ? p.getTitle() : it.getProductId().toString();
+    }
+}
@@ -0,0 +1,41 @@
+package com.isdstore.orders;
+
+import java.util.UUID;
+
+/**
+ * A cart line after stock reservation: the quantity actually taken from stock, with the title and
+ * unit price read in the checkout transaction.
+ */
+class ReservedItem {
+    private final UUID productId;
+    private final String title;
+    private final int unitPriceCents;
+    private final int quantity;
+
+    ReservedItem(UUID productId, String title, int unitPriceCents, int quantity) {
+        this.productId = productId;
+        this.title = title;
+        this.unitPriceCents = Math.max(0, unitPriceCents);
+        this.quantity = quantity;
+    }
+
+    UUID getProductId() {
+        return productId;
+    }
+
+    String getTitle() {
+        return title;
+    }
+
+    int getQuantity() {
+        return quantity;
+    }
+
+    int getUnitPriceCents() {
+        return unitPriceCents;
+    }
+
+    int getTotalCents() {
+        return unitPriceCents * quantity;
+    }
+}
@@ -0,0 +1,143 @@
+package com.isdstore.orders;
+
+import com.isdstore.inventory.HotStockService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Decrements stock for a whole cart inside the caller's transaction.
+ * Keeps the "buy what is available" semantics: each line takes min(requested, available), where
+ * available is the stock minus the units already claimed by hot reservations ({@link HotStockService#claimedUnits}).
+ * With hot-inventory mode on, products flagged hot_stock are reserved from Redis counters
+ * by {@link HotStockService} instead of locking their rows.
+ */
+@Service
+public class StockReservationService {
+    private static final Logger log = LoggerFactory.getLogger(StockReservationService.class);
+    private static final String DECREMENT_SQL = "UPDATE products SET stock = stock - ? WHERE id = ? AND stock >= ?";
+    // Title and price of hot lines are read here, in the checkout transaction, as the locked rows are for the others
+    private static final String HOT_SQL = "SELECT id, title, price_cents, stock, hot_stock FROM products WHERE hot_stock AND id = ANY(?)";
+    // Row locks taken in id order so concurrent checkouts cannot deadlock. Plain JDBC, so stock is read
+    // from the locked row and never from a Product the transaction's persistence context already holds.
+    private static final String LOCK_SQL = """
+            SELECT id, title, price_cents, stock, hot_stock FROM products
+            WHERE id = ANY(?) ORDER BY id FOR UPDATE
+            """;
+    private static final RowMapper<ProductRow> ROW_MAPPER = (rs, i) -> new ProductRow(rs.getObject("id", UUID.class),
+            rs.getString("title"), rs.getInt("price_cents"), rs.getInt("stock"), rs.getBoolean("hot_stock"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final HotStockService hotStockService;
+
+    public StockReservationService(JdbcTemplate jdbcTemplate, HotStockService hotStockService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.hotStockService = hotStockService;
+    }
+
+    /**
+     * Reserves hot products from their Redis counters, then locks all other requested products
+     * with one SELECT ... FOR UPDATE and applies every decrement as a single JDBC batch of conditional updates.
+     * Products are routed on their committed hot_stock flag, not the cached one, and a product flagged
+     * after that read is found hot under its row lock and handed to the counters.
+     *
+     * @param requested productId -> requested quantity (> 0)
+     * @return the lines that could be (partially) fulfilled; empty if nothing is in stock
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<ReservedItem> reserve(Map<UUID, Integer> requested) {
+        List<ReservedItem> reserved = new ArrayList<>();
+        if (requested.isEmpty()) return reserved;
+        if (!hotStockService.isEnabled()) {
+            reserveLocked(requested, reserved);
+            return reserved;
+        }
+
+        // Products that no longer exist are not hot here, and are skipped by the locked path
+        Map<UUID, ProductRow> hot = new LinkedHashMap<>();
+        for (ProductRow row : query(HOT_SQL, requested)) hot.put(row.id(), row);
+        Map<UUID, Integer> cold = new LinkedHashMap<>();
+        requested.forEach((id, qty) -> {
+            if (!hot.containsKey(id)) cold.put(id, qty);
+        });
+        if (!hot.isEmpty()) reserveHot(hot, requested, reserved);
+        if (!cold.isEmpty()) {
+            Map<UUID, ProductRow> flagged = reserveLocked(cold, reserved);
+            if (!flagged.isEmpty()) reserveHot(flagged, requested, reserved);
+        }
+        return reserved;
+    }
+
+    private void reserveHot(Map<UUID, ProductRow> rows, Map<UUID, Integer> requested, List<ReservedItem> reserved) {
+        Map<UUID, Integer> wanted = new LinkedHashMap<>();
+        rows.keySet().forEach(id -> wanted.put(id, requested.get(id)));
+        hotStockService.reserve(wanted).forEach((id, qty) -> {
+            ProductRow row = rows.get(id);
+            reserved.add(new ReservedItem(id, row.title(), row.priceCents(), qty));
+        });
+    }
+
+    private List<ProductRow> query(String sql, Map<UUID, Integer> requested) {
+        return jdbcTemplate.query(sql,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", requested.keySet().toArray())),
+                ROW_MAPPER);
+    }
+
+    private record ProductRow(UUID id, String title, int priceCents, int stock, boolean hot) {
+    }
+
+    // Returns the products found flagged hot under their lock while the mode is on, left to the counters
+    private Map<UUID, ProductRow> reserveLocked(Map<UUID, Integer> requested, List<ReservedItem> reserved) {
+        boolean hotMode = hotStockService.isEnabled();
+        List<ProductRow> locked = query(LOCK_SQL, requested);
+        Map<UUID, ProductRow> flagged = new LinkedHashMap<>();
+        List<ProductRow> rows = new ArrayList<>();
+        List<UUID> counterBacked = new ArrayList<>();
+        for (ProductRow row : locked) {
+            if (hotMode && row.hot()) {
+                flagged.put(row.id(), row);
+                continue;
+            }
+            rows.add(row);
+            // With the mode on, a product may have lost its flag while its counter still sells
+            if (hotMode || row.hot()) counterBacked.add(row.id());
+        }
+        Map<UUID, Integer> claimed = hotStockService.claimedUnits(rows.stream().map(ProductRow::id).toList(), counterBacked);
+
+        List<Object[]> batch = new ArrayList<>();
+        for (ProductRow row : rows) {
+            int available = Math.max(0, row.stock() - claimed.getOrDefault(row.id(), 0));
+            int qty = Math.min(requested.get(row.id()), available);
+            if (qty <= 0) {
+                log.info("Product {} has no stock; requested={} available=0", row.id(), requested.get(row.id()));
+                continue;
+            }
+            batch.add(new Object[]{qty, row.id(), qty});
+            reserved.add(new ReservedItem(row.id(), row.title(), row.priceCents(), qty));
+        }
+        if (locked.size() < requested.size()) {
+            log.warn("{} requested products no longer exist; skipping", requested.size() - locked.size());
+        }
+        if (batch.isEmpty()) return flagged;
+
+        int[] counts = jdbcTemplate.batchUpdate(DECREMENT_SQL, batch);
+        for (int i = 0; i < counts.length; i++) {
+            // Rows are locked, so a miss means something bypassed the lock; abort the checkout
+            if (counts[i] == 0) {
+                throw new IllegalStateException("Stock changed concurrently for product " + batch.get(i)[1]);
+            }
+        }
+        log.info("Reserved stock for {} products in one batch", batch.size());
+        return flagged;
+    }
+}
@@ -0,0 +1,205 @@
+package com.isdstore.outbox;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Claims pending outbox rows and runs their handlers on a worker pool.
+ * A claim is a lease: one UPDATE ... FOR UPDATE SKIP LOCKED pushes available_at forward and
+ * counts the attempt, so instances never pick the same rows and rows claimed by a crashed
+ * instance become available again when the lease ends. Failures back off exponentially;
+ * after maxAttempts a row is parked (available_at = infinity) with its last error.
+ */
+@Component
+public class OutboxDispatcher {
+    private static final Logger log = LoggerFactory.getLogger(OutboxDispatcher.class);
+    private static final long MAX_BACKOFF_SECONDS = 300;
+
+    private static final String CLAIM_SQL = """
+            UPDATE outbox SET attempts = attempts + 1, available_at = NOW() + (? * INTERVAL '1 second')
+            WHERE id IN (
+                SELECT id FROM outbox
+                WHERE processed_at IS NULL AND available_at <= NOW()
+                ORDER BY id
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED)
+            RETURNING id, event_type, aggregate_id, payload::text AS payload, attempts
+            """;
+    private static final String DONE_SQL = "UPDATE outbox SET processed_at = NOW(), last_error = NULL WHERE id = ?";
+    private static final String RETRY_SQL = "UPDATE outbox SET available_at = NOW() + (? * INTERVAL '1 second'), last_error = ? WHERE id = ?";
+    private static final String PARK_SQL = "UPDATE outbox SET available_at = 'infinity', last_error = ? WHERE id = ?";
+    private static final String PURGE_SQL = "DELETE FROM outbox WHERE processed_at < NOW() - (? * INTERVAL '1 day')";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<String, List<OutboxHandler>> handlers = new HashMap<>();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final int batchSize;
+    private final long leaseSeconds;
+    private final int maxAttempts;
+    private final long retentionDays;
+    private final ExecutorService poller;
+    private final ExecutorService workers;
+    private final AtomicBoolean pollQueued = new AtomicBoolean();
+    private final Counter processed;
+    private final Counter retried;
+    private final Counter parked;
+
+    public OutboxDispatcher(JdbcTemplate jdbcTemplate,
+                            List<OutboxHandler> handlerBeans,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.outbox.batchSize}") int batchSize,
+                            @Value("${app.outbox.leaseSeconds}") long leaseSeconds,
+                            @Value("${app.outbox.maxAttempts}") int maxAttempts,
+                            @Value("${app.outbox.workers}") int workerCount,
+                            @Value("${app.outbox.retentionDays}") long retentionDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        for (OutboxHandler h : handlerBeans) {
+            handlers.computeIfAbsent(h.eventType(), k -> new ArrayList<>()).add(h);
+        }
+        this.batchSize = batchSize;
+        this.leaseSeconds = leaseSeconds;
+        this.maxAttempts = maxAttempts;
+        this.retentionDays = retentionDays;
+        AtomicInteger seq = new AtomicInteger();
+        this.poller = Executors.newSingleThreadExecutor(daemon(() -> "outbox-poll"));
+        this.workers = Executors.newFixedThreadPool(workerCount, daemon(() -> "outbox-" + seq.incrementAndGet()));
+        this.processed = Counter.builder("isdstore.outbox.events").tag("result", "processed").register(meterRegistry);
+        this.retried = Counter.builder("isdstore.outbox.events").tag("result", "retried").register(meterRegistry);
+        this.parked = Counter.builder("isdstore.outbox.events").tag("result", "parked").register(meterRegistry);
+        log.info("Outbox handlers: {}", handlers.keySet());
+    }
+
+    private static ThreadFactory daemon(Supplier<String> names) {
+        return r -> {
+            Thread t = new Thread(r, names.get());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /**
+     * Requests an immediate poll (e.g. after a commit that appended events); coalesces bursts.
+     */
+    public void trigger() {
+        if (pollQueued.compareAndSet(false, true)) {
+            try {
+                poller.execute(() -> {
+                    pollQueued.set(false);
+                    dispatch();
+                });
+            } catch (RejectedExecutionException e) {
+                pollQueued.set(false);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.pollIntervalMs}")
+    public void poll() {
+        dispatch();
+    }
+
+    @Scheduled(fixedDelay = 1, timeUnit = TimeUnit.HOURS)
+    public void purge() {
+        try {
+            int deleted = jdbcTemplate.update(PURGE_SQL, retentionDays);
+            if (deleted > 0) log.info("Purged {} processed outbox events", deleted);
+        } catch (Exception e) {
+            log.warn("Outbox purge failed: {}", e.getMessage());
+        }
+    }
+
+    private void dispatch() {
+        List<OutboxEvent> claimed;
+        try {
+            claimed = jdbcTemplate.query(CLAIM_SQL, (rs, i) -> new OutboxEvent(
+                    rs.getLong("id"),
+                    rs.getString("event_type"),
+                    rs.getObject("aggregate_id", UUID.class),
+                    readPayload(rs.getString("payload")),
+                    rs.getInt("attempts")), leaseSeconds, batchSize);
+        } catch (Exception e) {
+            log.warn("Outbox claim failed: {}", e.getMessage());
+            return;
+        }
+        for (OutboxEvent event : claimed) {
+            try {
+                workers.execute(() -> process(event));
+            } catch (RejectedExecutionException e) {
+                // Shutting down: the lease expires and another instance picks the row up
+                return;
+            }
+        }
+        if (claimed.size() == batchSize) {
+            trigger();
+        }
+    }
+
+    private JsonNode readPayload(String json) {
+        try {
+            return objectMapper.readTree(json);
+        } catch (Exception e) {
+            return objectMapper.nullNode();
+        }
+    }
+
+    private void process(OutboxEvent event) {
+        List<OutboxHandler> forType = handlers.get(event.getType());
+        try {
+            if (forType == null) {
+                throw new IllegalStateException("No handler registered for " + event.getType());
+            }
+            for (OutboxHandler handler : forType) {
+                handler.handle(event);
+            }
+            jdbcTemplate.update(DONE_SQL, event.getId());
+            processed.increment();
+        } catch (Exception e) {
+            String error = e.getClass().getSimpleName() + ": " + e.getMessage();
+            try {
+                if (event.getAttempt() >= maxAttempts) {
+                    jdbcTemplate.update(PARK_SQL, error, event.getId());
+                    parked.increment();
+                    log.error("Outbox event {} ({}) parked after {} attempts: {}", event.getId(), event.getType(), event.getAttempt(), error);
+                } else {
+                    long backoff = Math.min(MAX_BACKOFF_SECONDS, 1L << Math.min(event.getAttempt(), 20));
+                    jdbcTemplate.update(RETRY_SQL, backoff, error, event.getId());
+                    retried.increment();
+                    log.warn("Outbox event {} ({}) failed on attempt {}, retrying in {}s: {}", event.getId(), event.getType(), event.getAttempt(), backoff, error);
+                }
+            } catch (Exception updateError) {
+                // The lease expiry retries it anyway
+                log.warn("Failed to record outbox failure for event {}: {}", event.getId(), updateError.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        poller.shutdown();
+        workers.shutdown();
+        workers.awaitTermination(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,44 @@
+package com.isdstore.outbox;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.UUID;
+
+/**
+ * An outbox row claimed for dispatch. {@code attempt} starts at 1.
+ */
+public class OutboxEvent {
+    private final long id;
+    private final String type;
+    private final UUID aggregateId;
+    private final JsonNode payload;
+    private final int attempt;
+
+    OutboxEvent(long id, String type, UUID aggregateId, JsonNode payload, int attempt) {
+        this.id = id;
+        this.type = type;
+        this.aggregateId = aggregateId;
+        this.payload = payload;
+        this.attempt = attempt;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public UUID getAggregateId() {
+        return aggregateId;
+    }
+
+    public JsonNode getPayload() {
+        return payload;
+    }
+
+    public int getAttempt() {
+        return attempt;
+    }
+}
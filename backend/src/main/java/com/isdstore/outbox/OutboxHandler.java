@@ -0,0 +1,15 @@
+package com.isdstore.outbox;
+
+/**
+ * Side effect run by {@link OutboxDispatcher} for events of one type. Delivery is at least once:
+ * a failure of any handler retries the event for all handlers of its type, so handlers must be idempotent.
+ */
+public interface OutboxHandler {
+
+    String eventType();
+
+    /**
+     * Throwing schedules a retry with exponential backoff.
+     */
+    void handle(OutboxEvent event) throws Exception;
+}
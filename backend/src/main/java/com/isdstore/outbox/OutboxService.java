@@ -0,0 +1,52 @@
+package com.isdstore.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.UUID;
+
+/**
+ * Appends events to the outbox table inside the caller's transaction, so an event exists
+ * if and only if the business change it describes was committed.
+ */
+@Service
+public class OutboxService {
+    private static final Logger log = LoggerFactory.getLogger(OutboxService.class);
+    private static final String INSERT_SQL = "INSERT INTO outbox (event_type, aggregate_id, payload) VALUES (?, ?, ?::jsonb)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final OutboxDispatcher dispatcher;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public OutboxService(JdbcTemplate jdbcTemplate, OutboxDispatcher dispatcher) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dispatcher = dispatcher;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(String eventType, UUID aggregateId, Object payload) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize outbox payload for " + eventType, e);
+        }
+        jdbcTemplate.update(INSERT_SQL, eventType, aggregateId, json);
+        log.debug("Appended outbox event {} for {}", eventType, aggregateId);
+        // Dispatch right after commit instead of waiting for the next poll
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                dispatcher.trigger();
+            }
+        });
+    }
+}
@@ -3,11 +3,15 @@ package com.isdstore.products;
 import com.isdstore.common.dto.ProductDTO;
 import com.isdstore.common.entity.Product;
 import com.isdstore.common.repo.ProductRepository;
+import com.isdstore.inventory.HotStockService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -18,12 +22,21 @@ public class AdminProductController {
     private static final Logger log = LoggerFactory.getLogger(AdminProductController.class);
 
     private final ProductRepository productRepository;
+    private final ProductCatalogCache catalogCache;
+    private final HotStockService hotStockService;
+    private final ProductSearchIndex searchIndex;
 
-    public AdminProductController(ProductRepository productRepository) {
+    public AdminProductController(ProductRepository productRepository, ProductCatalogCache catalogCache, HotStockService hotStockService, ProductSearchIndex searchIndex) {
         this.productRepository = productRepository;
+        this.catalogCache = catalogCache;
+        this.hotStockService = hotStockService;
+        this.searchIndex = searchIndex;
     }
 
+    // Writes run in a read-write transaction, so their lookups and the cache invalidation
+    // (after commit) stay on the primary even when read replicas are configured
     @PostMapping
+    @Transactional
     public ResponseEntity<?> create(@RequestBody ProductDTO dto) {
         // Basic validation (keep it simple)
         if (dto.getTitle() == null || dto.getTitle().isBlank()) return ResponseEntity.badRequest().body("Title is required");
@@ -39,16 +52,21 @@ public class AdminProductController {
         p.setStock(dto.getStock());
 
         Product saved = productRepository.save(p);
+        catalogCache.invalidate(saved.getId());
+        searchIndex.refresh(List.of(saved.getId()));
         log.info("Admin created product id={}", saved.getId());
         return ResponseEntity.ok(toDto(saved));
     }
 
     @PutMapping("/{id}")
+    @Transactional
     public ResponseEntity<?> update(@PathVariable UUID id, @RequestBody ProductDTO dto) {
-        Optional<Product> existingOpt = productRepository.findById(id);
+        // Locked so the stock read here cannot race with checkout or hot-stock reconciliation
+        Optional<Product> existingOpt = productRepository.lockAllById(List.of(id)).stream().findFirst();
         if (existingOpt.isEmpty()) return ResponseEntity.notFound().build();
 
         Product existing = existingOpt.get();
+        int previousStock = existing.getStock();
         if (dto.getTitle() != null) existing.setTitle(dto.getTitle());
         if (dto.getDescription() != null) existing.setDescription(dto.getDescription());
         if (dto.getPriceCents() != null && dto.getPriceCents() >= 0) existing.setPriceCents(dto.getPriceCents());
@@ -56,18 +74,34 @@ public class AdminProductController {
         if (dto.getStock() != null && dto.getStock() >= 0) existing.setStock(dto.getStock());
 
         Product saved = productRepository.save(existing);
+        if (saved.isHotStock()) hotStockService.adjustAfterCommit(saved.getId(), saved.getStock() - previousStock);
+        catalogCache.invalidate(saved.getId());
+        searchIndex.refresh(List.of(saved.getId()));
         log.info("Admin updated product id={}", saved.getId());
         return ResponseEntity.ok(toDto(saved));
     }
 
     @DeleteMapping("/{id}")
+    @Transactional
     public ResponseEntity<?> delete(@PathVariable UUID id) {
         if (!productRepository.existsById(id)) return ResponseEntity.notFound().build();
         productRepository.deleteById(id);
+        catalogCache.invalidate(id);
+        searchIndex.refresh(List.of(id));
         log.info("Admin deleted product id={}", id);
         return ResponseEntity.noContent().build();
     }
 
+    @GetMapping("/cache/stats")
+    public Map<String, Object> cacheStats() {
+        return catalogCache.stats();
+    }
+
+    @GetMapping("/search/stats")
+    public Map<String, Object> searchStats() {
+        return searchIndex.stats();
+    }
+
     private ProductDTO toDto(Product p) {
         ProductDTO dto = new ProductDTO();
         dto.setId(p.getId());
@@ -0,0 +1,246 @@
+package com.isdstore.products;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.isdstore.common.entity.Product;
+import com.isdstore.common.repo.ProductRepository;
+import com.isdstore.config.ReplicaRoutingDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Read-through cache in front of {@link ProductRepository} for the public catalog:
+ * products by id and the first (landing) page of the listing.
+ * Cached products are detached entities and must be treated as read-only.
+ * Invalidations are applied locally and broadcast to other instances over Redis pub/sub.
+ * Every invalidation also bumps the catalog version (a Redis counter), which ProductController
+ * uses as the listing ETag.
+ * Misses are loaded from the primary, so a reload right after an invalidation never caches
+ * a row a lagging read replica has not replayed yet.
+ */
+@Service
+public class ProductCatalogCache implements MeterBinder {
+    private static final Logger log = LoggerFactory.getLogger(ProductCatalogCache.class);
+    static final String INVALIDATION_CHANNEL = "catalog:invalidate";
+    private static final String ALL = "*";
+    private static final String VERSION_KEY = "catalog:version";
+
+    private final ProductRepository productRepository;
+    private final StringRedisTemplate redis;
+    private final Cache<UUID, Product> products;
+    private final Cache<Integer, List<Product>> firstPages;
+    private final long versionRecheckMillis;
+    private volatile long version;
+    private volatile long versionReadAt;
+
+    public ProductCatalogCache(ProductRepository productRepository,
+                               StringRedisTemplate redis,
+                               RedisMessageListenerContainer listenerContainer,
+                               @Value("${app.catalog.cache.maxSize}") long maxSize,
+                               @Value("${app.catalog.cache.ttlSeconds}") long ttlSeconds) {
+        this.productRepository = productRepository;
+        this.redis = redis;
+        this.products = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        this.firstPages = Caffeine.newBuilder()
+                .maximumSize(8)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        this.versionRecheckMillis = Duration.ofSeconds(ttlSeconds).toMillis();
+        listenerContainer.addMessageListener(this::onInvalidation, new ChannelTopic(INVALIDATION_CHANNEL));
+        loadVersion();
+    }
+
+    /**
+     * Current catalog version. Kept locally and updated by invalidation messages; re-read from
+     * Redis once per cache TTL, so a missed message is bounded like the cached rows themselves.
+     */
+    public long version() {
+        if (System.currentTimeMillis() - versionReadAt > versionRecheckMillis) {
+            loadVersion();
+        }
+        return version;
+    }
+
+    private void loadVersion() {
+        try {
+            // Seeded with the clock so a flushed Redis never reissues an old version
+            redis.opsForValue().setIfAbsent(VERSION_KEY, Long.toString(System.currentTimeMillis()));
+            String stored = redis.opsForValue().get(VERSION_KEY);
+            if (stored != null) {
+                version = Math.max(version, Long.parseLong(stored));
+            }
+        } catch (Exception e) {
+            if (version == 0) {
+                version = System.currentTimeMillis();
+            }
+            log.warn("Failed to read catalog version, keeping {}: {}", version, e.getMessage());
+        }
+        versionReadAt = System.currentTimeMillis();
+    }
+
+    private long bumpVersion() {
+        try {
+            Long next = redis.opsForValue().increment(VERSION_KEY);
+            if (next != null) {
+                version = Math.max(version, next);
+                return version;
+            }
+        } catch (Exception e) {
+            log.warn("Failed to bump catalog version in Redis: {}", e.getMessage());
+        }
+        return ++version;
+    }
+
+    public Optional<Product> get(UUID id) {
+        return Optional.ofNullable(products.get(id, k -> ReplicaRoutingDataSource.onPrimary(() -> productRepository.findById(k)).orElse(null)));
+    }
+
+    /**
+     * Returns the products found for the given ids; misses are resolved with one bulk query.
+     */
+    public Map<UUID, Product> getAll(Collection<UUID> ids) {
+        if (ids.isEmpty()) return new HashMap<>();
+        return products.getAll(ids, missing -> {
+            Map<UUID, Product> loaded = new HashMap<>();
+            for (Product p : ReplicaRoutingDataSource.onPrimary(() -> productRepository.findAllById(new ArrayList<UUID>(missing)))) {
+                loaded.put(p.getId(), p);
+            }
+            return loaded;
+        });
+    }
+
+    /**
+     * First keyset page of the unfiltered listing, keyed by row limit.
+     */
+    public List<Product> firstPage(int limit) {
+        return firstPages.get(limit, k -> {
+            List<Product> loaded = ReplicaRoutingDataSource.onPrimary(() -> productRepository.findPage(k));
+            loaded.forEach(p -> products.put(p.getId(), p));
+            log.info("Loaded first catalog page with {} products", loaded.size());
+            return List.copyOf(loaded);
+        });
+    }
+
+    public void invalidate(UUID id) {
+        invalidate(List.of(id));
+    }
+
+    /**
+     * Evicts the given products and the cached first pages on every instance.
+     * Inside a transaction the eviction is deferred until after commit,
+     * so concurrent readers cannot re-cache the pre-commit rows.
+     */
+    public void invalidate(Collection<UUID> ids) {
+        String message = ids.stream().map(UUID::toString).collect(Collectors.joining(","));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictAndPublish(message);
+                }
+            });
+        } else {
+            evictAndPublish(message);
+        }
+    }
+
+    public void invalidateAll() {
+        evictAndPublish(ALL);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, products, "catalog.products");
+        CaffeineCacheMetrics.monitor(registry, firstPages, "catalog.firstPages");
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("products", describe(products.stats(), products.estimatedSize()));
+        result.put("firstPages", describe(firstPages.stats(), firstPages.estimatedSize()));
+        return result;
+    }
+
+    private Map<String, Object> describe(CacheStats stats, long size) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("size", size);
+        m.put("hits", stats.hitCount());
+        m.put("misses", stats.missCount());
+        m.put("evictions", stats.evictionCount());
+        m.put("hitRate", stats.hitRate());
+        return m;
+    }
+
+    private void evictAndPublish(String message) {
+        // Evict before bumping: a reader that sees the new version can only load fresh rows
+        evictLocal(message);
+        long v = bumpVersion();
+        try {
+            redis.convertAndSend(INVALIDATION_CHANNEL, v + "|" + message);
+        } catch (Exception e) {
+            // Other instances fall back to TTL expiry
+            log.warn("Failed to publish catalog invalidation: {}", e.getMessage());
+        }
+    }
+
+    // Message format: "{version}|{ids or *}"
+    private void onInvalidation(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int sep = body.indexOf('|');
+        evictLocal(sep < 0 ? body : body.substring(sep + 1));
+        if (sep > 0) {
+            try {
+                version = Math.max(version, Long.parseLong(body.substring(0, sep)));
+            } catch (NumberFormatException e) {
+                log.warn("Ignoring malformed catalog version in invalidation {}", body);
+            }
+        }
+    }
+
+    private void evictLocal(String message) {
+        firstPages.invalidateAll();
+        if (ALL.equals(message)) {
+            products.invalidateAll();
+            log.info("Evicted whole product cache");
+            return;
+        }
+        for (String id : message.split(",")) {
+            if (id.isBlank()) continue;
+            try {
+                products.invalidate(UUID.fromString(id));
+            } catch (IllegalArgumentException e) {
+                log.warn("Ignoring malformed catalog invalidation entry {}", id);
+            }
+        }
+        log.debug("Evicted products [{}] from catalog cache", message);
+    }
+}
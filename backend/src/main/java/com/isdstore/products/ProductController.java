@@ -1,14 +1,23 @@
 package com.isdstore.products;
 
 import com.isdstore.common.dto.ProductDTO;
+import com.isdstore.common.dto.ProductPageDTO;
+import com.isdstore.common.dto.ProductSuggestionDTO;
 import com.isdstore.common.entity.Product;
+import com.isdstore.common.repo.KeysetCursor;
 import com.isdstore.common.repo.ProductRepository;
+import com.isdstore.config.ReplicaRoutingDataSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -18,39 +27,124 @@ import java.util.stream.Collectors;
 public class ProductController {
 
     private static final Logger log = LoggerFactory.getLogger(ProductController.class);
+    private static final int MAX_SUGGEST_QUERY = 100;
 
     private final ProductRepository productRepository;
+    private final ProductCatalogCache catalogCache;
+    private final ProductSearchIndex searchIndex;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+    private final int defaultSuggestions;
+    private final int maxSuggestions;
+    private final CacheControl cacheControl;
 
-    public ProductController(ProductRepository productRepository) {
+    public ProductController(ProductRepository productRepository,
+                             ProductCatalogCache catalogCache,
+                             ProductSearchIndex searchIndex,
+                             @Value("${app.catalog.page.defaultSize}") int defaultPageSize,
+                             @Value("${app.catalog.page.maxSize}") int maxPageSize,
+                             @Value("${app.catalog.search.defaultLimit}") int defaultSuggestions,
+                             @Value("${app.catalog.search.maxLimit}") int maxSuggestions,
+                             @Value("${app.catalog.http.maxAgeSeconds}") long maxAgeSeconds) {
         this.productRepository = productRepository;
+        this.catalogCache = catalogCache;
+        this.searchIndex = searchIndex;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+        this.defaultSuggestions = defaultSuggestions;
+        this.maxSuggestions = maxSuggestions;
+        // Shared caches may serve it for max-age, then revalidate with If-None-Match
+        this.cacheControl = CacheControl.maxAge(Duration.ofSeconds(maxAgeSeconds)).cachePublic();
     }
 
     @GetMapping
-    public List<ProductDTO> list(@RequestParam(name = "q", required = false) String q) {
-        List<Product> products = productRepository.findAll();
-        // if (q != null && !q.isBlank()) {
-        //     String needle = q.toLowerCase();
-        //     products = products.stream()
-        //             .filter(p -> containsIgnoreCase(p.getTitle(), needle) || containsIgnoreCase(p.getDescription(), needle))
-        //             .collect(Collectors.toList());
-        // }
-        List<ProductDTO> result = products.stream().map(this::toDto).collect(Collectors.toList());
-        log.info("Returning {} products", result.size());
-        return result;
+    public ResponseEntity<?> list(@RequestParam(name = "q", required = false) String q,
+                                  @RequestParam(name = "cursor", required = false) String cursor,
+                                  @RequestParam(name = "size", required = false) Integer size,
+                                  WebRequest webRequest) {
+        // Any catalog write bumps the version, so a matching If-None-Match is answered before any lookup.
+        // Read it before loading: at worst an old ETag is paired with fresh rows, never the reverse.
+        String etag = "W/\"catalog-" + catalogCache.version() + "\"";
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        int pageSize = size == null ? defaultPageSize : Math.max(1, Math.min(size, maxPageSize));
+        KeysetCursor after = null;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                after = KeysetCursor.decode(cursor);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body("Invalid cursor");
+            }
+        }
+        // Fetch one extra row to know whether another page exists; the queries tolerate replica lag
+        int limit = pageSize + 1;
+        KeysetCursor start = after;
+        List<Product> products;
+        if (q != null && !q.isBlank()) {
+            String pattern = "%" + escapeLike(q.trim()) + "%";
+            products = ReplicaRoutingDataSource.onReplica(() -> start == null
+                    ? productRepository.searchPage(pattern, limit)
+                    : productRepository.searchPageAfter(pattern, start.createdAt(), start.id(), limit));
+        } else {
+            products = start == null
+                    ? catalogCache.firstPage(limit)
+                    : ReplicaRoutingDataSource.onReplica(() -> productRepository.findPageAfter(start.createdAt(), start.id(), limit));
+        }
+        boolean hasMore = products.size() > pageSize;
+        if (hasMore) products = products.subList(0, pageSize);
+
+        ProductPageDTO page = new ProductPageDTO();
+        page.setItems(products.stream().map(this::toDto).collect(Collectors.toList()));
+        page.setNextCursor(hasMore ? encodeCursor(products.get(products.size() - 1)) : null);
+        log.info("Returning {} products (q={}, hasMore={})", page.getItems().size(), q, hasMore);
+        return ResponseEntity.ok().eTag(etag).cacheControl(cacheControl).body(page);
+    }
+
+    /**
+     * Search-as-you-type suggestions from the in-memory index; the last word matches as a title prefix.
+     * While the index is still building, falls back to the title search query.
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<ProductSuggestionDTO>> suggest(@RequestParam(name = "q") String q,
+                                                              @RequestParam(name = "limit", required = false) Integer limit) {
+        int n = limit == null ? defaultSuggestions : Math.max(1, Math.min(limit, maxSuggestions));
+        // Bounded so a pasted paragraph cannot turn into dozens of term lookups
+        String query = q.length() > MAX_SUGGEST_QUERY ? q.substring(0, MAX_SUGGEST_QUERY) : q;
+        List<ProductSuggestionDTO> suggestions;
+        if (searchIndex.isReady()) {
+            suggestions = searchIndex.suggest(query, n);
+        } else if (query.isBlank()) {
+            suggestions = List.of();
+        } else {
+            String pattern = "%" + escapeLike(query.trim()) + "%";
+            suggestions = ReplicaRoutingDataSource.onReplica(() -> productRepository.searchPage(pattern, n)).stream()
+                    .map(this::toSuggestion).collect(Collectors.toList());
+        }
+        log.debug("Returning {} suggestions for q={}", suggestions.size(), query);
+        return ResponseEntity.ok().cacheControl(cacheControl).body(suggestions);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<ProductDTO> get(@PathVariable("id") UUID id) {
+    public ResponseEntity<ProductDTO> get(@PathVariable("id") UUID id, WebRequest webRequest) {
         log.info("Fetching product {}", id);
-        return productRepository.findById(id)
-                .map(p -> {
-                    log.info("Found product {}", id);
-                    return ResponseEntity.ok(toDto(p));
-                })
-                .orElseGet(() -> {
-                    log.warn("Product {} not found", id);
-                    return ResponseEntity.notFound().build();
-                });
+        Optional<Product> found = catalogCache.get(id);
+        if (found.isEmpty()) {
+            log.warn("Product {} not found", id);
+            return ResponseEntity.notFound().build();
+        }
+        Product p = found.get();
+        String etag = "W/\"" + p.getUpdatedAt().toEpochMilli() + "\"";
+        if (webRequest.checkNotModified(etag, p.getUpdatedAt().toEpochMilli())) {
+            log.info("Product {} not modified", id);
+            return null;
+        }
+        log.info("Found product {}", id);
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .lastModified(p.getUpdatedAt())
+                .cacheControl(cacheControl)
+                .body(toDto(p));
     }
 
     private ProductDTO toDto(Product p) {
@@ -64,7 +158,19 @@ public class ProductController {
         return dto;
     }
 
-    // private boolean containsIgnoreCase(String haystack, String needleLower) {
-    //     return haystack != null && haystack.toLowerCase().contains(needleLower);
-    // }
+    private ProductSuggestionDTO toSuggestion(Product p) {
+        ProductSuggestionDTO dto = new ProductSuggestionDTO();
+        dto.setId(p.getId());
+        dto.setTitle(p.getTitle());
+        dto.setPriceCents(p.getPriceCents());
+        return dto;
+    }
+
+    private static String encodeCursor(Product last) {
+        return KeysetCursor.encode(last.getCreatedAt(), last.getId());
+    }
+
+    private static String escapeLike(String s) {
+        return s.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
 }
@@ -0,0 +1,509 @@
+package com.isdstore.products;
+
+import com.isdstore.common.dto.ProductSuggestionDTO;
+import com.isdstore.common.entity.Product;
+import com.isdstore.common.repo.ProductRepository;
+import com.isdstore.config.ReplicaRoutingDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * In-process search-as-you-type index over the catalog: an inverted index of title and
+ * description terms plus a sorted term map over titles for prefix expansion.
+ * Every query term must match (title or description); the last one also matches as a prefix
+ * of title terms. Ranking: number of terms found in the title, then a title starting with the first
+ * term, then an exact (not prefix) last term; newer products win ties.
+ * <p>
+ * Built from {@link ProductRepository} in keyset pages once the application is ready; until then
+ * {@link #isReady()} is false. Admin writes call {@link #refresh} which, after commit, reloads the
+ * products on every instance (Redis pub/sub).
+ */
+@Service
+public class ProductSearchIndex {
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchIndex.class);
+    static final String REFRESH_CHANNEL = "catalog:search";
+
+    private final ProductRepository productRepository;
+    private final StringRedisTemplate redis;
+    private final int buildPageSize;
+    private final int maxExpansions;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Terms terms = new Terms();
+    private volatile boolean ready;
+    // Ids refreshed while a build runs; reloaded once the new index is swapped in
+    private Set<UUID> refreshedDuringBuild;
+
+    public ProductSearchIndex(ProductRepository productRepository,
+                              StringRedisTemplate redis,
+                              RedisMessageListenerContainer listenerContainer,
+                              @Value("${app.catalog.search.buildPageSize}") int buildPageSize,
+                              @Value("${app.catalog.search.maxExpansions}") int maxExpansions) {
+        this.productRepository = productRepository;
+        this.redis = redis;
+        this.buildPageSize = buildPageSize;
+        this.maxExpansions = maxExpansions;
+        listenerContainer.addMessageListener(this::onRefresh, new ChannelTopic(REFRESH_CHANNEL));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildInBackground() {
+        Thread t = new Thread(() -> {
+            try {
+                rebuild();
+            } catch (Exception e) {
+                log.error("Failed to build product search index: {}", e.getMessage());
+            }
+        }, "search-index-build");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Loads the whole catalog into a fresh index and swaps it in.
+     */
+    public void rebuild() {
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            refreshedDuringBuild = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        Terms built = new Terms();
+        // The full scan may run on a replica: products it misses are refreshed as their writes arrive
+        List<Product> page = ReplicaRoutingDataSource.onReplica(() -> productRepository.findPage(buildPageSize));
+        while (!page.isEmpty()) {
+            page.forEach(built::put);
+            Product last = page.get(page.size() - 1);
+            page = page.size() < buildPageSize ? List.of()
+                    : ReplicaRoutingDataSource.onReplica(() -> productRepository.findPageAfter(last.getCreatedAt(), last.getId(), buildPageSize));
+        }
+        built.trim();
+        Set<UUID> missed;
+        lock.writeLock().lock();
+        try {
+            terms = built;
+            missed = refreshedDuringBuild;
+            refreshedDuringBuild = null;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (!missed.isEmpty()) reload(missed);
+        log.info("Built product search index: {} products, {} title terms, {} description terms in {} ms",
+                built.docCount, built.title.size(), built.description.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Up to {@code limit} best matches for what the user has typed so far.
+     */
+    public List<ProductSuggestionDTO> suggest(String query, int limit) {
+        String[] tokens = tokenize(query);
+        if (tokens.length == 0 || limit <= 0) return List.of();
+        lock.readLock().lock();
+        try {
+            return terms.search(tokens, limit, maxExpansions);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Re-reads the given products into the index on every instance, after the current transaction commits.
+     */
+    public void refresh(Collection<UUID> ids) {
+        String message = ids.stream().map(UUID::toString).collect(Collectors.joining(","));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    reloadAndPublish(ids, message);
+                }
+            });
+        } else {
+            reloadAndPublish(ids, message);
+        }
+    }
+
+    private void reloadAndPublish(Collection<UUID> ids, String message) {
+        reload(ids);
+        try {
+            redis.convertAndSend(REFRESH_CHANNEL, message);
+        } catch (Exception e) {
+            // Other instances keep stale entries for these products until they restart
+            log.warn("Failed to publish search index refresh: {}", e.getMessage());
+        }
+    }
+
+    private void onRefresh(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        List<UUID> ids = new ArrayList<>();
+        for (String id : body.split(",")) {
+            if (id.isBlank()) continue;
+            try {
+                ids.add(UUID.fromString(id));
+            } catch (IllegalArgumentException e) {
+                log.warn("Ignoring malformed search index refresh entry {}", id);
+            }
+        }
+        reload(ids);
+    }
+
+    private void reload(Collection<UUID> ids) {
+        // From the primary: the write that triggered this has only just committed
+        Map<UUID, Product> found = new HashMap<>();
+        ReplicaRoutingDataSource.onPrimary(() -> productRepository.findAllById(ids)).forEach(p -> found.put(p.getId(), p));
+        lock.writeLock().lock();
+        try {
+            if (refreshedDuringBuild != null) refreshedDuringBuild.addAll(ids);
+            for (UUID id : ids) {
+                Product p = found.get(id);
+                if (p == null) terms.remove(id);
+                else terms.put(p);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        lock.readLock().lock();
+        try {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("ready", ready);
+            m.put("products", terms.docCount);
+            m.put("titleTerms", terms.title.size());
+            m.put("descriptionTerms", terms.description.size());
+            m.put("postings", terms.postingCount);
+            return m;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Lowercased, accent-stripped runs of letters and digits.
+     */
+    static String[] tokenize(String text) {
+        if (text == null || text.isBlank()) return new String[0];
+        String folded = Normalizer.normalize(text, Normalizer.Form.NFD);
+        List<String> tokens = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i < folded.length(); i++) {
+            char c = folded.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) continue;
+            if (Character.isLetterOrDigit(c)) {
+                current.append(Character.toLowerCase(c));
+            } else if (current.length() > 0) {
+                tokens.add(current.toString());
+                current.setLength(0);
+            }
+        }
+        if (current.length() > 0) tokens.add(current.toString());
+        return tokens.toArray(new String[0]);
+    }
+
+    /**
+     * The index proper; guarded by the outer lock. Doc ids are dense ints so term postings are
+     * sorted int arrays and query-time sets are bitsets.
+     */
+    private static final class Terms {
+        private static final String[] NONE = new String[0];
+
+        final List<Doc> docs = new ArrayList<>();            // doc id -> doc, null once removed
+        final Map<UUID, Integer> docIds = new HashMap<>();
+        final NavigableMap<String, Postings> title = new TreeMap<>();
+        final NavigableMap<String, Postings> leading = new TreeMap<>();  // first title term only
+        final Map<String, Postings> description = new HashMap<>();
+        // doc id -> createdAt millis, so ranking scans never dereference docs
+        long[] created = new long[1024];
+        int docCount;
+        long postingCount;
+
+        void put(Product p) {
+            Integer existing = docIds.get(p.getId());
+            int docId;
+            if (existing != null) {
+                docId = existing;
+                unlink(docId, docs.get(docId));
+            } else {
+                docId = docs.size();
+                docs.add(null);
+                docIds.put(p.getId(), docId);
+                docCount++;
+            }
+            String[] titleTerms = link(title, docId, tokenize(p.getTitle()));
+            String[] descriptionTerms = link(description, docId, tokenize(p.getDescription()));
+            if (titleTerms.length > 0) link(leading, docId, new String[]{titleTerms[0]});
+            long createdAt = p.getCreatedAt() == null ? 0 : p.getCreatedAt().toEpochMilli();
+            if (docId >= created.length) created = Arrays.copyOf(created, Math.max(docId + 1, created.length * 2));
+            created[docId] = createdAt;
+            docs.set(docId, new Doc(p.getId(), p.getTitle(), p.getPriceCents() == null ? 0 : p.getPriceCents(),
+                    createdAt, titleTerms, descriptionTerms));
+        }
+
+        void trim() {
+            title.values().forEach(Postings::trim);
+            leading.values().forEach(Postings::trim);
+            description.values().forEach(Postings::trim);
+        }
+
+        void remove(UUID id) {
+            Integer docId = docIds.remove(id);
+            if (docId == null) return;
+            unlink(docId, docs.get(docId));
+            docs.set(docId, null);
+            docCount--;
+        }
+
+        // Adds the doc to each distinct term's postings; returns the canonical (map-owned) term strings
+        private String[] link(Map<String, Postings> index, int docId, String[] tokens) {
+            if (tokens.length == 0) return NONE;
+            Set<String> seen = new HashSet<>();
+            List<String> canonical = new ArrayList<>(tokens.length);
+            for (String token : tokens) {
+                if (!seen.add(token)) continue;
+                Postings postings = index.computeIfAbsent(token, Postings::new);
+                postings.add(docId);
+                postingCount++;
+                canonical.add(postings.term);
+            }
+            return canonical.toArray(NONE);
+        }
+
+        private void unlink(int docId, Doc doc) {
+            if (doc == null) return;
+            for (String t : doc.titleTerms) unlink(title, t, docId);
+            if (doc.titleTerms.length > 0) unlink(leading, doc.titleTerms[0], docId);
+            for (String t : doc.descriptionTerms) unlink(description, t, docId);
+        }
+
+        private void unlink(Map<String, Postings> index, String term, int docId) {
+            Postings postings = index.get(term);
+            if (postings != null && postings.remove(docId)) {
+                postingCount--;
+                if (postings.size == 0) index.remove(term);
+            }
+        }
+
+        // Adds the postings of up to maxExpansions terms that strictly extend the prefix
+        private static void expand(NavigableMap<String, Postings> index, String prefix, int maxExpansions, Bits into) {
+            int expanded = 0;
+            for (Postings p : index.subMap(prefix, false, prefix + Character.MAX_VALUE, false).values()) {
+                if (++expanded > maxExpansions) break;
+                p.addTo(into);
+            }
+        }
+
+        List<ProductSuggestionDTO> search(String[] tokens, int limit, int maxExpansions) {
+            int universe = docs.size();
+            int last = tokens.length - 1;
+            Bits[] inTitle = new Bits[tokens.length];
+            Bits lastExact = new Bits(universe);
+            Bits titleAll = null;
+            for (int i = 0; i <= last; i++) {
+                String token = tokens[i];
+                Bits titleHits = new Bits(universe);
+                Postings exact = title.get(token);
+                if (exact != null) exact.addTo(titleHits);
+                if (i == last) {
+                    if (exact != null) exact.addTo(lastExact);
+                    expand(title, token, maxExpansions, titleHits);
+                }
+                inTitle[i] = titleHits;
+                if (titleAll == null) titleAll = titleHits.copy();
+                else titleAll.and(titleHits);
+            }
+
+            // Title hits dominate the score, so once enough docs match every term in the title,
+            // description postings cannot change the result and are never touched
+            Bits candidates = titleAll;
+            if (titleAll.cardinality() < limit) {
+                candidates = null;
+                for (int i = 0; i <= last; i++) {
+                    Bits any = inTitle[i].copy();
+                    Postings inDescription = description.get(tokens[i]);
+                    if (inDescription != null) inDescription.addTo(any);
+                    if (candidates == null) candidates = any;
+                    else candidates.and(any);
+                    if (candidates.isEmpty()) return List.of();
+                }
+            }
+
+            Bits leadingHits = new Bits(universe);
+            Postings leadingExact = leading.get(tokens[0]);
+            if (leadingExact != null) leadingExact.addTo(leadingHits);
+            expand(leading, tokens[0], maxExpansions, leadingHits);
+
+            // Min-heap of the best `limit` docs seen so far; scoring reads only bitsets and `created`,
+            // a doc is dereferenced only when it beats the weakest entry
+            PriorityQueue<Scored> best = new PriorityQueue<>(limit + 1);
+            for (int docId = candidates.nextSetBit(0); docId >= 0; docId = candidates.nextSetBit(docId + 1)) {
+                int score = lastExact.get(docId) ? 1 : 0;
+                for (Bits hits : inTitle) {
+                    if (hits.get(docId)) score += 4;
+                }
+                if (leadingHits.get(docId)) score += 2;
+                if (best.size() == limit) {
+                    Scored weakest = best.peek();
+                    if (score < weakest.score || (score == weakest.score && created[docId] <= weakest.doc.createdAt)) continue;
+                    best.poll();
+                }
+                best.add(new Scored(docs.get(docId), score));
+            }
+            Scored[] ranked = best.toArray(new Scored[0]);
+            Arrays.sort(ranked, (a, b) -> b.compareTo(a));
+            List<ProductSuggestionDTO> result = new ArrayList<>(ranked.length);
+            for (Scored s : ranked) {
+                ProductSuggestionDTO dto = new ProductSuggestionDTO();
+                dto.setId(s.doc.id);
+                dto.setTitle(s.doc.title);
+                dto.setPriceCents(s.doc.priceCents);
+                result.add(dto);
+            }
+            return result;
+        }
+    }
+
+    private record Doc(UUID id, String title, int priceCents, long createdAt,
+                       String[] titleTerms, String[] descriptionTerms) {
+    }
+
+    private record Scored(Doc doc, int score) implements Comparable<Scored> {
+        @Override
+        public int compareTo(Scored o) {
+            if (score != o.score) return Integer.compare(score, o.score);
+            return Long.compare(doc.createdAt, o.doc.createdAt);
+        }
+    }
+
+    /**
+     * Fixed-size bitset over doc ids. Postings write its words directly: java.util.BitSet's per-bit
+     * bounds and growth checks dominated query time when expanding common terms.
+     */
+    private static final class Bits {
+        final long[] words;
+
+        Bits(int size) {
+            this.words = new long[(size + 63) >>> 6];
+        }
+
+        private Bits(long[] words) {
+            this.words = words;
+        }
+
+        boolean get(int bit) {
+            return (words[bit >>> 6] & (1L << bit)) != 0;
+        }
+
+        Bits copy() {
+            return new Bits(words.clone());
+        }
+
+        void and(Bits other) {
+            for (int i = 0; i < words.length; i++) words[i] &= other.words[i];
+        }
+
+        int cardinality() {
+            int n = 0;
+            for (long w : words) n += Long.bitCount(w);
+            return n;
+        }
+
+        boolean isEmpty() {
+            for (long w : words) {
+                if (w != 0) return false;
+            }
+            return true;
+        }
+
+        int nextSetBit(int from) {
+            int i = from >>> 6;
+            if (i >= words.length) return -1;
+            long w = words[i] & (-1L << from);
+            while (true) {
+                if (w != 0) return (i << 6) + Long.numberOfTrailingZeros(w);
+                if (++i == words.length) return -1;
+                w = words[i];
+            }
+        }
+    }
+
+    /**
+     * Sorted, growable doc id list for one term.
+     */
+    private static final class Postings {
+        final String term;
+        int[] ids = new int[2];
+        int size;
+
+        Postings(String term) {
+            this.term = term;
+        }
+
+        void add(int docId) {
+            // Builds and new products append in order; re-indexed docs keep their id and are inserted
+            if (size == 0 || ids[size - 1] < docId) {
+                if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+                ids[size++] = docId;
+                return;
+            }
+            int at = Arrays.binarySearch(ids, 0, size, docId);
+            if (at >= 0) return;
+            at = -at - 1;
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            System.arraycopy(ids, at, ids, at + 1, size - at);
+            ids[at] = docId;
+            size++;
+        }
+
+        boolean remove(int docId) {
+            int at = Arrays.binarySearch(ids, 0, size, docId);
+            if (at < 0) return false;
+            System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+            size--;
+            return true;
+        }
+
+        void trim() {
+            if (ids.length > size) ids = Arrays.copyOf(ids, Math.max(size, 1));
+        }
+
+        void addTo(Bits bits) {
+            long[] words = bits.words;
+            for (int i = 0; i < size; i++) words[ids[i] >>> 6] |= 1L << ids[i];
+        }
+    }
+}
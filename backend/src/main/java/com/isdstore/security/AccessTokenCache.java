@@ -0,0 +1,151 @@
+package com.isdstore.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory cache of access tokens that already passed signature and allow-list checks,
+ * keyed by SHA-256 of the raw token. Entries never outlive the token's exp, nor
+ * app.jwt.cache.maxTtlSeconds, which bounds staleness if a revocation message is missed.
+ */
+@Component
+public class AccessTokenCache implements MeterBinder {
+    private static final Logger log = LoggerFactory.getLogger(AccessTokenCache.class);
+    static final String REVOCATION_CHANNEL = "auth:revoked";
+    private static final String USER_REVOCATION_PREFIX = "user:";
+
+    public static final class VerifiedToken {
+        private final UUID userId;
+        private final String role;
+        private final long expiresAtMillis;
+
+        VerifiedToken(UUID userId, String role, long expiresAtMillis) {
+            this.userId = userId;
+            this.role = role;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+
+        public UUID getUserId() {
+            return userId;
+        }
+
+        public String getRole() {
+            return role;
+        }
+    }
+
+    private final Cache<String, VerifiedToken> cache;
+    private final StringRedisTemplate redis;
+
+    public AccessTokenCache(StringRedisTemplate redis,
+                            RedisMessageListenerContainer listenerContainer,
+                            @Value("${app.jwt.cache.maxSize}") long maxSize,
+                            @Value("${app.jwt.cache.maxTtlSeconds}") long maxTtlSeconds) {
+        this.redis = redis;
+        long maxTtlNanos = TimeUnit.SECONDS.toNanos(maxTtlSeconds);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+                        long untilExp = TimeUnit.MILLISECONDS.toNanos(value.expiresAtMillis - System.currentTimeMillis());
+                        return Math.max(0, Math.min(untilExp, maxTtlNanos));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        listenerContainer.addMessageListener(this::onRevocation, new ChannelTopic(REVOCATION_CHANNEL));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "auth.accessTokens");
+    }
+
+    public VerifiedToken get(String token) {
+        return cache.getIfPresent(digest(token));
+    }
+
+    public VerifiedToken put(String token, UUID userId, String role, long expiresAtMillis) {
+        VerifiedToken verified = new VerifiedToken(userId, role, expiresAtMillis);
+        cache.put(digest(token), verified);
+        return verified;
+    }
+
+    /**
+     * Drops the token here and broadcasts the digest so other instances drop it too.
+     */
+    public void revoke(String token) {
+        String d = digest(token);
+        cache.invalidate(d);
+        try {
+            redis.convertAndSend(REVOCATION_CHANNEL, d);
+        } catch (Exception e) {
+            log.warn("Failed to publish token revocation: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Drops every cached token of the user, here and (via broadcast) on other instances.
+     * Linear in the cache size, which is acceptable for the rare logout-everywhere.
+     */
+    public void revokeUser(UUID userId) {
+        evictUser(userId);
+        try {
+            redis.convertAndSend(REVOCATION_CHANNEL, USER_REVOCATION_PREFIX + userId);
+        } catch (Exception e) {
+            log.warn("Failed to publish user token revocation: {}", e.getMessage());
+        }
+    }
+
+    private void evictUser(UUID userId) {
+        cache.asMap().values().removeIf(v -> v.userId.equals(userId));
+    }
+
+    private void onRevocation(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        if (body.startsWith(USER_REVOCATION_PREFIX)) {
+            evictUser(UUID.fromString(body.substring(USER_REVOCATION_PREFIX.length())));
+        } else {
+            cache.invalidate(body);
+        }
+    }
+
+    static String digest(String token) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(md.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package com.isdstore.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.NonNull;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Idempotency-Key support for retried POSTs (app.idempotency.paths, e.g. checkout).
+ * The first request for a (user, key) pair claims it in Redis and runs normally; its response
+ * is then stored for app.idempotency.ttlSeconds. Duplicates arriving meanwhile wait for that
+ * result (up to waitMillis, else 409) and get it replayed, so the handler's transaction runs once.
+ * The claim and the stored result carry a SHA-256 fingerprint of the query string and body: reusing
+ * a key for a different request is a client bug and gets 422 instead of someone else's response.
+ * Runs outside the handler's transaction: waiting duplicates hold no DB connection.
+ * Redis errors never fail the request: before the handler has run it executes without
+ * deduplication, and once it has run its response is returned even if it could not be stored.
+ */
+@Component
+public class IdempotencyFilter extends OncePerRequestFilter {
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyFilter.class);
+    static final String HEADER = "Idempotency-Key";
+    private static final String IN_FLIGHT = "in_flight";   // claim marker, followed by ":" + fingerprint
+    private static final int MAX_KEY_LENGTH = 128;
+    private static final long POLL_MILLIS = 50;
+
+    private final StringRedisTemplate redis;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<String> paths;
+    private final Duration ttl;
+    private final Duration inFlightTtl;
+    private final long waitMillis;
+    private final MeterRegistry meterRegistry;
+
+    public IdempotencyFilter(StringRedisTemplate redis,
+                             MeterRegistry meterRegistry,
+                             @Value("${app.idempotency.paths}") List<String> paths,
+                             @Value("${app.idempotency.ttlSeconds}") long ttlSeconds,
+                             @Value("${app.idempotency.inFlightTtlSeconds}") long inFlightTtlSeconds,
+                             @Value("${app.idempotency.waitMillis}") long waitMillis) {
+        this.redis = redis;
+        this.meterRegistry = meterRegistry;
+        this.paths = paths;
+        this.ttl = Duration.ofSeconds(ttlSeconds);
+        this.inFlightTtl = Duration.ofSeconds(inFlightTtlSeconds);
+        this.waitMillis = waitMillis;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !"POST".equals(request.getMethod())
+                || request.getHeader(HEADER) == null
+                || !paths.contains(request.getRequestURI());
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        String idempotencyKey = request.getHeader(HEADER).trim();
+        UUID userId = currentUserId();
+        if (userId == null) {
+            // Unauthenticated: let the authorization rules reject it
+            filterChain.doFilter(request, response);
+            return;
+        }
+        if (idempotencyKey.isEmpty() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(), "Invalid " + HEADER);
+            return;
+        }
+        // Scoped per user and path, so keys from different clients or endpoints never collide
+        String redisKey = "idem:" + request.getRequestURI() + ":" + userId + ":" + idempotencyKey;
+        CachedBodyRequest cached = new CachedBodyRequest(request);
+        String fingerprint = fingerprint(request.getQueryString(), cached.body);
+
+        long deadline = System.currentTimeMillis() + waitMillis;
+        while (true) {
+            Boolean claimed;
+            String stored;
+            try {
+                claimed = redis.opsForValue().setIfAbsent(redisKey, IN_FLIGHT + ":" + fingerprint, inFlightTtl);
+                stored = Boolean.TRUE.equals(claimed) ? null : redis.opsForValue().get(redisKey);
+            } catch (DataAccessException e) {
+                // Degrade to plain execution rather than failing every checkout while Redis is down
+                outcome("unavailable");
+                log.warn("Idempotency store unavailable, running request without deduplication: {}", e.getMessage());
+                filterChain.doFilter(cached, response);
+                return;
+            }
+            if (Boolean.TRUE.equals(claimed)) {
+                outcome("first");
+                execute(redisKey, fingerprint, cached, response, filterChain);
+                return;
+            }
+            Map<?, ?> result = stored == null || stored.startsWith(IN_FLIGHT) ? null : objectMapper.readValue(stored, Map.class);
+            String storedFingerprint = result != null ? (String) result.get("fingerprint")
+                    : stored != null && stored.startsWith(IN_FLIGHT + ":") ? stored.substring(IN_FLIGHT.length() + 1) : null;
+            // Results stored before fingerprints existed carry none and are replayed as before
+            if (storedFingerprint != null && !storedFingerprint.equals(fingerprint)) {
+                outcome("mismatch");
+                log.warn("{}={} reused with a different request by user={}", HEADER, idempotencyKey, userId);
+                response.setStatus(HttpStatus.UNPROCESSABLE_ENTITY.value());
+                response.setContentType("text/plain");
+                response.getWriter().write("This Idempotency-Key was already used for a different request");
+                return;
+            }
+            if (result != null) {
+                outcome("replayed");
+                log.info("Replaying stored response for {} user={} key={}", request.getRequestURI(), userId, idempotencyKey);
+                replay(result, response);
+                return;
+            }
+            // Still in flight (or just released after a failure, then the next loop claims it)
+            if (System.currentTimeMillis() >= deadline) {
+                outcome("conflict");
+                log.warn("Request with {}={} still in progress for user={}", HEADER, idempotencyKey, userId);
+                response.setStatus(HttpStatus.CONFLICT.value());
+                response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+                response.setContentType("text/plain");
+                response.getWriter().write("A request with this Idempotency-Key is still in progress");
+                return;
+            }
+            try {
+                Thread.sleep(POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ServletException("Interrupted while waiting for idempotent request", e);
+            }
+        }
+    }
+
+    private void execute(String redisKey, String fingerprint, HttpServletRequest request, HttpServletResponse response,
+                         FilterChain filterChain) throws ServletException, IOException {
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        boolean completed = false;
+        try {
+            filterChain.doFilter(request, wrapper);
+            // 5xx is not stored: the client may retry with the same key and run the handler again
+            if (wrapper.getStatus() < 500) {
+                completed = true;
+                store(redisKey, fingerprint, wrapper);
+            }
+        } finally {
+            if (!completed) {
+                release(redisKey);
+            }
+            wrapper.copyBodyToResponse();
+        }
+    }
+
+    private void store(String redisKey, String fingerprint, ContentCachingResponseWrapper wrapper) throws IOException {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("fingerprint", fingerprint);
+        result.put("status", wrapper.getStatus());
+        result.put("contentType", wrapper.getContentType());
+        result.put("body", new String(wrapper.getContentAsByteArray(), StandardCharsets.UTF_8));
+        try {
+            redis.opsForValue().set(redisKey, objectMapper.writeValueAsString(result), ttl);
+        } catch (DataAccessException e) {
+            // The handler has committed: return its response anyway. The claim is kept, so duplicates
+            // get 409 until it expires instead of running the handler a second time right away
+            outcome("unstored");
+            log.warn("Could not store idempotent response for {}: {}", redisKey, e.getMessage());
+        }
+    }
+
+    private void release(String redisKey) {
+        try {
+            redis.delete(redisKey);
+        } catch (DataAccessException e) {
+            // The claim expires after inFlightTtl
+            log.warn("Could not release idempotency claim {}: {}", redisKey, e.getMessage());
+        }
+    }
+
+    private static void replay(Map<?, ?> result, HttpServletResponse response) throws IOException {
+        response.setStatus(((Number) result.get("status")).intValue());
+        Object contentType = result.get("contentType");
+        if (contentType != null) {
+            response.setContentType(contentType.toString());
+        }
+        response.setHeader("Idempotent-Replayed", "true");
+        Object body = result.get("body");
+        if (body != null) {
+            byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+            response.setContentLength(bytes.length);
+            response.getOutputStream().write(bytes);
+        }
+    }
+
+    static String fingerprint(String queryString, byte[] body) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            if (queryString != null) digest.update(queryString.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            return HexFormat.of().formatHex(digest.digest(body));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private void outcome(String result) {
+        Counter.builder("isdstore.idempotency").tag("result", result).register(meterRegistry).increment();
+    }
+
+    private UUID currentUserId() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || !(auth.getPrincipal() instanceof String principal)) {
+            return null;
+        }
+        try {
+            return UUID.fromString(principal);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads the body once, for the fingerprint, and serves it again to the handler.
+     */
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request) throws IOException {
+            super(request);
+            this.body = request.getInputStream().readAllBytes();
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(@NonNull byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                // The whole body is already in memory, so it is available (and then read) right away
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    try {
+                        if (!isFinished()) {
+                            listener.onDataAvailable();
+                        }
+                        if (isFinished()) {
+                            listener.onAllDataRead();
+                        }
+                    } catch (IOException e) {
+                        listener.onError(e);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                    encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8));
+        }
+    }
+}
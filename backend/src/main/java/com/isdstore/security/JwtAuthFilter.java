@@ -14,6 +14,8 @@ import java.util.List;
 import java.util.UUID;
 
 import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -21,8 +23,10 @@ import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 
 /**
- * Reference Monitor style filter: validate JWT & attach security context.
- * Simplified stub – does not actually parse JWT yet.
+ * Reference Monitor style filter: validates the Bearer access token and attaches the security context.
+ * A token seen before is served from {@link AccessTokenCache}; otherwise its signature and expiry are
+ * checked by {@link JwtService}, it must be an access token with a jti, and the jti must be on the
+ * Redis allow-list ({@link TokenService}) before it is cached. Invalid tokens leave the request unauthenticated.
  */
 @Component
 public class JwtAuthFilter extends OncePerRequestFilter {
@@ -30,10 +34,16 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final TokenService tokenService;
+    private final AccessTokenCache accessTokenCache;
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
 
-    public JwtAuthFilter(JwtService jwtService, TokenService tokenService) {
+    public JwtAuthFilter(JwtService jwtService, TokenService tokenService, AccessTokenCache accessTokenCache, MeterRegistry meterRegistry) {
         this.jwtService = jwtService;
         this.tokenService = tokenService;
+        this.accessTokenCache = accessTokenCache;
+        this.cacheHits = Counter.builder("isdstore.auth.token.cache").tag("result", "hit").register(meterRegistry);
+        this.cacheMisses = Counter.builder("isdstore.auth.token.cache").tag("result", "miss").register(meterRegistry);
     }
     @Override
     protected void doFilterInternal(@NonNull HttpServletRequest request,
@@ -43,19 +53,18 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         if (auth != null && auth.startsWith("Bearer ")) {
             String token = auth.substring(7);
             try {
-                Claims claims = jwtService.parseToken(token);
-                String typ = claims.get("typ", String.class);
-                if (!"access".equals(typ)) {
-                    log.warn("Rejected non-access token presented in Authorization header");
+                AccessTokenCache.VerifiedToken verified = accessTokenCache.get(token);
+                if (verified == null) {
+                    cacheMisses.increment();
+                    verified = verify(token);
                 } else {
-                    UUID userId = UUID.fromString(claims.getSubject());
-                    String role = claims.get("role", String.class);
-                    if (tokenService.isTokenValid("access", userId, token)) {
-                        java.util.List<SimpleGrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_" + role.toUpperCase()));
-                        UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(userId.toString(), null, authorities);
-                        SecurityContextHolder.getContext().setAuthentication(authToken);
-                        log.info("Authenticated request for user {} with role {}", userId, role);
-                    }
+                    cacheHits.increment();
+                }
+                if (verified != null) {
+                    List<SimpleGrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_" + verified.getRole().toUpperCase()));
+                    UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(verified.getUserId().toString(), null, authorities);
+                    SecurityContextHolder.getContext().setAuthentication(authToken);
+                    log.info("Authenticated request for user {} with role {}", verified.getUserId(), verified.getRole());
                 }
             } catch (Exception e) {
                 log.warn("JWT validation failed: {}", e.getMessage());
@@ -63,4 +72,26 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         }
         filterChain.doFilter(request, response);
     }
+
+    /**
+     * Full check on a cache miss: signature, type and Redis allow-list. Valid tokens are cached.
+     */
+    private AccessTokenCache.VerifiedToken verify(String token) {
+        Claims claims = jwtService.parseToken(token);
+        String typ = claims.get("typ", String.class);
+        if (!"access".equals(typ)) {
+            log.warn("Rejected non-access token presented in Authorization header");
+            return null;
+        }
+        if (claims.getId() == null) {
+            log.warn("Rejected access token without jti");
+            return null;
+        }
+        UUID userId = UUID.fromString(claims.getSubject());
+        String role = claims.get("role", String.class);
+        if (!tokenService.isTokenValid("access", claims.getId())) {
+            return null;
+        }
+        return accessTokenCache.put(token, userId, role, claims.getExpiration().getTime());
+    }
 }
@@ -1,6 +1,7 @@
 package com.isdstore.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
@@ -11,7 +12,9 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.security.Key;
+import java.security.SecureRandom;
 import java.time.Instant;
+import java.util.Base64;
 import java.util.Date;
 import java.util.Map;
 import java.util.UUID;
@@ -22,6 +25,8 @@ public class JwtService {
     private static final Logger log = LoggerFactory.getLogger(JwtService.class);
 
     private final Key key;
+    private final JwtParser parser; // immutable and thread-safe, built once
+    private final SecureRandom random = new SecureRandom();
     private final long accessTtlSeconds;
     private final long refreshTtlSeconds;
 
@@ -31,6 +36,7 @@ public class JwtService {
             @Value("${app.jwt.refreshTtlSeconds}") long refreshTtlSeconds
     ) {
         this.key = initKey(secret);
+        this.parser = Jwts.parserBuilder().setSigningKey(key).build();
         this.accessTtlSeconds = accessTtlSeconds;
         this.refreshTtlSeconds = refreshTtlSeconds;
     }
@@ -56,19 +62,29 @@ public class JwtService {
         return Keys.hmacShaKeyFor(keyBytes);
     }
 
-    public String generateAccessToken(UUID userId, String role) {
-        return generateToken(userId, role, accessTtlSeconds, Map.of("typ", "access"));
+    /**
+     * Random 128-bit token id (22 URL-safe chars), used as jti and as the allow-list key.
+     */
+    public String newTokenId() {
+        byte[] bytes = new byte[16];
+        random.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
     }
 
-    public String generateRefreshToken(UUID userId, String role) {
-        return generateToken(userId, role, refreshTtlSeconds, Map.of("typ", "refresh"));
+    public String generateAccessToken(UUID userId, String role, String jti) {
+        return generateToken(userId, role, jti, accessTtlSeconds, Map.of("typ", "access"));
     }
 
-    private String generateToken(UUID userId, String role, long ttlSeconds, Map<String, Object> extraClaims) {
+    public String generateRefreshToken(UUID userId, String role, String jti) {
+        return generateToken(userId, role, jti, refreshTtlSeconds, Map.of("typ", "refresh"));
+    }
+
+    private String generateToken(UUID userId, String role, String jti, long ttlSeconds, Map<String, Object> extraClaims) {
         Instant now = Instant.now();
         Instant exp = now.plusSeconds(ttlSeconds);
         String token = Jwts.builder()
                 .setClaims(extraClaims)
+                .setId(jti)
                 .setSubject(userId.toString())
                 .claim("role", role)
                 .setIssuedAt(Date.from(now))
@@ -80,7 +96,7 @@ public class JwtService {
     }
 
     public Claims parseToken(String token) {
-        return Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token).getBody();
+        return parser.parseClaimsJws(token).getBody();
     }
 
     public long getAccessTtlSeconds() {
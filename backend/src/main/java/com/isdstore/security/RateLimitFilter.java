@@ -0,0 +1,105 @@
+package com.isdstore.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.NonNull;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Applies the app.ratelimit route-group limits. Runs right after {@link JwtAuthFilter}, so
+ * authenticated requests are counted per user as well as per client IP. Responses carry
+ * RateLimit-Limit/Remaining/Reset headers; rejected requests get 429 with Retry-After.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+    private static final Logger log = LoggerFactory.getLogger(RateLimitFilter.class);
+
+    private final RateLimitProperties properties;
+    private final RateLimiter rateLimiter;
+    private final MeterRegistry meterRegistry;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    public RateLimitFilter(RateLimitProperties properties, RateLimiter rateLimiter, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.rateLimiter = rateLimiter;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        if (!properties.isEnabled()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        Map.Entry<String, RateLimitProperties.Group> group = match(request);
+        if (group == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        RateLimiter.Decision decision = rateLimiter.tryAcquire(group.getKey(), group.getValue(), currentUserId(), request.getRemoteAddr());
+        if (decision == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        response.setHeader("RateLimit-Limit", String.valueOf(decision.getLimit()));
+        response.setHeader("RateLimit-Remaining", String.valueOf(decision.getRemaining()));
+        response.setHeader("RateLimit-Reset", String.valueOf(decision.getResetSeconds()));
+        if (!decision.isAllowed()) {
+            Counter.builder("isdstore.ratelimit.rejected").tag("group", group.getKey()).register(meterRegistry).increment();
+            log.warn("Rate limit exceeded for {} {} from {} (group {})", request.getMethod(), request.getRequestURI(), request.getRemoteAddr(), group.getKey());
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(decision.getResetSeconds()));
+            response.setContentType("text/plain");
+            response.getWriter().write("Too many requests, retry later");
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private Map.Entry<String, RateLimitProperties.Group> match(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        for (Map.Entry<String, RateLimitProperties.Group> entry : properties.getGroups().entrySet()) {
+            RateLimitProperties.Group group = entry.getValue();
+            if (!group.getMethods().isEmpty() && !group.getMethods().contains(request.getMethod())) {
+                continue;
+            }
+            for (String pattern : group.getPaths()) {
+                if (pathMatcher.match(pattern, path)) {
+                    return entry;
+                }
+            }
+        }
+        return null;
+    }
+
+    private UUID currentUserId() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || auth instanceof AnonymousAuthenticationToken || !(auth.getPrincipal() instanceof String principal)) {
+            return null;
+        }
+        try {
+            return UUID.fromString(principal);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
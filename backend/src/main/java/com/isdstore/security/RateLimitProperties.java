@@ -0,0 +1,35 @@
+package com.isdstore.security;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Route groups for {@link RateLimitFilter}, bound from app.ratelimit. A request is counted
+ * against the first group whose method and path match; a limit of 0 disables that dimension.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.ratelimit")
+public class RateLimitProperties {
+    private boolean enabled = true;
+    /** How long to stay on the local fallback after a Redis failure before trying Redis again. */
+    private long fallbackSeconds = 5;
+    private Map<String, Group> groups = new LinkedHashMap<>();
+
+    @Data
+    public static class Group {
+        /** HTTP methods; empty matches any method. */
+        private List<String> methods = new ArrayList<>();
+        /** Ant-style path patterns. */
+        private List<String> paths = new ArrayList<>();
+        private int userLimit;
+        private int ipLimit;
+        private long windowSeconds = 60;
+    }
+}
@@ -0,0 +1,45 @@
+package com.isdstore.security;
+
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.List;
+
+/**
+ * Sliding-window counter: each subject has one counter per fixed window and the current
+ * rate is estimated as previous * (1 - elapsed fraction) + current.
+ */
+final class RateLimitScripts {
+
+    // KEYS = (current, previous) window counter pairs, one pair per subject (user, IP).
+    // ARGV[1] = elapsed fraction of the current window, ARGV[2] = window in ms, ARGV[3..] = limit per subject.
+    // Checks every subject first and only counts the request when all allow it.
+    // Returns {allowed (0/1), remaining for the tightest subject, 1-based index of that subject}.
+    @SuppressWarnings("rawtypes")
+    static final RedisScript<List> ACQUIRE = new DefaultRedisScript<>("""
+            local elapsed = tonumber(ARGV[1])
+            local window = tonumber(ARGV[2])
+            local remaining, binding = -1, 1
+            for i = 1, #KEYS / 2 do
+              local limit = tonumber(ARGV[i + 2])
+              local curr = tonumber(redis.call('GET', KEYS[2 * i - 1]) or '0')
+              local prev = tonumber(redis.call('GET', KEYS[2 * i]) or '0')
+              local left = limit - (prev * (1 - elapsed) + curr)
+              if left < 1 then
+                return {0, 0, i}
+              end
+              left = math.floor(left - 1)
+              if remaining < 0 or left < remaining then
+                remaining, binding = left, i
+              end
+            end
+            for i = 1, #KEYS / 2 do
+              redis.call('INCR', KEYS[2 * i - 1])
+              redis.call('PEXPIRE', KEYS[2 * i - 1], window * 2)
+            end
+            return {1, remaining, binding}
+            """, List.class);
+
+    private RateLimitScripts() {
+    }
+}
@@ -0,0 +1,171 @@
+package com.isdstore.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sliding-window rate limiter shared by all instances through Redis (one script call per
+ * request). If Redis fails, decisions fall back to in-process counters for
+ * app.ratelimit.fallbackSeconds; those are per instance, so limits are looser meanwhile.
+ */
+@Service
+public class RateLimiter {
+    private static final Logger log = LoggerFactory.getLogger(RateLimiter.class);
+
+    public static final class Decision {
+        private final boolean allowed;
+        private final int limit;
+        private final long remaining;
+        private final long resetSeconds;
+
+        Decision(boolean allowed, int limit, long remaining, long resetSeconds) {
+            this.allowed = allowed;
+            this.limit = limit;
+            this.remaining = remaining;
+            this.resetSeconds = resetSeconds;
+        }
+
+        public boolean isAllowed() {
+            return allowed;
+        }
+
+        public int getLimit() {
+            return limit;
+        }
+
+        public long getRemaining() {
+            return remaining;
+        }
+
+        public long getResetSeconds() {
+            return resetSeconds;
+        }
+    }
+
+    private final StringRedisTemplate redis;
+    private final long fallbackMillis;
+    private final Cache<String, AtomicLong> localCounters;
+    private final Timer redisTimer;
+    private final Counter fallbacks;
+    private volatile long redisRetryAt;
+
+    public RateLimiter(StringRedisTemplate redis, RateLimitProperties properties, MeterRegistry meterRegistry) {
+        this.redis = redis;
+        this.fallbackMillis = TimeUnit.SECONDS.toMillis(properties.getFallbackSeconds());
+        long maxWindow = properties.getGroups().values().stream()
+                .mapToLong(RateLimitProperties.Group::getWindowSeconds).max().orElse(60);
+        this.localCounters = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(maxWindow * 2, TimeUnit.SECONDS)
+                .build();
+        this.redisTimer = Timer.builder("isdstore.redis").description("Redis round trips").tag("op", "ratelimit").register(meterRegistry);
+        this.fallbacks = Counter.builder("isdstore.ratelimit.fallback").register(meterRegistry);
+    }
+
+    /**
+     * Counts one request for the user (if authenticated) and the client IP in the given group.
+     * Returns null when the group limits neither dimension.
+     */
+    public Decision tryAcquire(String group, RateLimitProperties.Group config, UUID userId, String ip) {
+        List<String> subjects = new ArrayList<>(2);
+        List<Integer> limits = new ArrayList<>(2);
+        if (userId != null && config.getUserLimit() > 0) {
+            subjects.add("u:" + userId);
+            limits.add(config.getUserLimit());
+        }
+        if (config.getIpLimit() > 0) {
+            subjects.add("ip:" + ip);
+            limits.add(config.getIpLimit());
+        }
+        if (subjects.isEmpty()) {
+            return null;
+        }
+
+        long now = System.currentTimeMillis();
+        long windowMillis = TimeUnit.SECONDS.toMillis(config.getWindowSeconds());
+        long window = now / windowMillis;
+        double elapsed = (double) (now % windowMillis) / windowMillis;
+        long resetSeconds = Math.max(1, TimeUnit.MILLISECONDS.toSeconds(windowMillis - now % windowMillis + 999));
+
+        List<String> keys = new ArrayList<>(subjects.size() * 2);
+        for (String subject : subjects) {
+            String base = "rl:" + group + ":" + subject + ":";
+            keys.add(base + window);
+            keys.add(base + (window - 1));
+        }
+
+        long[] result = null;
+        if (now >= redisRetryAt) {
+            try {
+                result = acquireRedis(keys, elapsed, windowMillis, limits);
+            } catch (Exception e) {
+                redisRetryAt = now + fallbackMillis;
+                log.warn("Rate limiter falling back to local counters for {}s: {}", fallbackMillis / 1000, e.getMessage());
+            }
+        }
+        if (result == null) {
+            fallbacks.increment();
+            result = acquireLocal(keys, elapsed, limits);
+        }
+        int limit = limits.get((int) result[2] - 1);
+        return new Decision(result[0] == 1, limit, result[1], resetSeconds);
+    }
+
+    @SuppressWarnings("unchecked")
+    private long[] acquireRedis(List<String> keys, double elapsed, long windowMillis, List<Integer> limits) {
+        Object[] args = new Object[2 + limits.size()];
+        args[0] = Double.toString(elapsed);
+        args[1] = Long.toString(windowMillis);
+        for (int i = 0; i < limits.size(); i++) {
+            args[2 + i] = Integer.toString(limits.get(i));
+        }
+        List<Long> reply = redisTimer.record(() -> redis.execute(RateLimitScripts.ACQUIRE, keys, args));
+        if (reply == null || reply.size() < 3) {
+            throw new IllegalStateException("Unexpected rate limit script reply: " + reply);
+        }
+        return new long[]{reply.get(0), reply.get(1), reply.get(2)};
+    }
+
+    /**
+     * Same algorithm as {@link RateLimitScripts#ACQUIRE} over in-process counters.
+     */
+    private synchronized long[] acquireLocal(List<String> keys, double elapsed, List<Integer> limits) {
+        long remaining = -1;
+        int binding = 1;
+        for (int i = 0; i < limits.size(); i++) {
+            long curr = count(keys.get(2 * i));
+            long prev = count(keys.get(2 * i + 1));
+            double left = limits.get(i) - (prev * (1 - elapsed) + curr);
+            if (left < 1) {
+                return new long[]{0, 0, i + 1};
+            }
+            long floor = (long) Math.floor(left - 1);
+            if (remaining < 0 || floor < remaining) {
+                remaining = floor;
+                binding = i + 1;
+            }
+        }
+        for (int i = 0; i < limits.size(); i++) {
+            localCounters.get(keys.get(2 * i), k -> new AtomicLong()).incrementAndGet();
+        }
+        return new long[]{1, remaining, binding};
+    }
+
+    private long count(String key) {
+        AtomicLong counter = localCounters.getIfPresent(key);
+        return counter == null ? 0 : counter.get();
+    }
+}
@@ -17,9 +17,13 @@ import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 public class SecurityConfig {
 
     private final JwtAuthFilter jwtAuthFilter;
+    private final RateLimitFilter rateLimitFilter;
+    private final IdempotencyFilter idempotencyFilter;
 
-    public SecurityConfig(JwtAuthFilter jwtAuthFilter) {
+    public SecurityConfig(JwtAuthFilter jwtAuthFilter, RateLimitFilter rateLimitFilter, IdempotencyFilter idempotencyFilter) {
         this.jwtAuthFilter = jwtAuthFilter;
+        this.rateLimitFilter = rateLimitFilter;
+        this.idempotencyFilter = idempotencyFilter;
     }
 
     // From W3Schools:
@@ -37,10 +41,13 @@ public class SecurityConfig {
             .authorizeHttpRequests(auth -> auth
                 .requestMatchers("/api/auth/**").permitAll()
                 .requestMatchers("/api/products/**").permitAll()
+                .requestMatchers("/actuator/health", "/actuator/prometheus").permitAll() // only reachable on management.server.port
                 .requestMatchers("/api/admin/**").hasRole("ADMIN") // automatically adds "ROLE_" prefix
                 .anyRequest().authenticated()
             )
             .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class)
+            .addFilterAfter(rateLimitFilter, JwtAuthFilter.class) // needs the authenticated user
+            .addFilterAfter(idempotencyFilter, RateLimitFilter.class)
             .httpBasic(Customizer.withDefaults());
         return http.build();
     }
@@ -52,6 +59,11 @@ public class SecurityConfig {
         config.addAllowedHeader("*");
         config.addAllowedMethod("*");
         config.setAllowCredentials(false);
+        config.addExposedHeader("RateLimit-Limit");
+        config.addExposedHeader("RateLimit-Remaining");
+        config.addExposedHeader("RateLimit-Reset");
+        config.addExposedHeader("Retry-After");
+        config.addExposedHeader("Idempotent-Replayed");
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
         source.registerCorsConfiguration("/**", config);
         return source;
@@ -0,0 +1,34 @@
+package com.isdstore.security;
+
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+/**
+ * Lua scripts over the token allow-list ({@code auth:jti:{jti}}) and the per-user
+ * session index ({@code auth:sessions:{userId}}, a sorted set of jti scored by expiry).
+ */
+final class TokenScripts {
+
+    // KEYS[1] = token key, KEYS[2] = session index, ARGV[1] = jti. Returns 1 only for the caller that removed it.
+    static final RedisScript<Long> REVOKE = new DefaultRedisScript<>("""
+            if redis.call('DEL', KEYS[1]) == 1 then
+              redis.call('ZREM', KEYS[2], ARGV[1])
+              return 1
+            end
+            return 0
+            """, Long.class);
+
+    // KEYS[1] = session index, ARGV[1] = token key prefix. Returns the number of sessions dropped.
+    // Token keys are derived inside the script, which is fine on a single Redis node but not cluster-safe.
+    static final RedisScript<Long> REVOKE_ALL = new DefaultRedisScript<>("""
+            local ids = redis.call('ZRANGE', KEYS[1], 0, -1)
+            for _, id in ipairs(ids) do
+              redis.call('DEL', ARGV[1] .. id)
+            end
+            redis.call('DEL', KEYS[1])
+            return #ids
+            """, Long.class);
+
+    private TokenScripts() {
+    }
+}
@@ -1,44 +1,128 @@
 package com.isdstore.security;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
+import java.util.List;
 import java.util.UUID;
 
+/**
+ * Redis allow-list of issued tokens, keyed by their short jti rather than the full JWT.
+ * Each user also has a session index (jti scored by expiry) so all of their tokens can be
+ * revoked in one call without scanning the keyspace.
+ */
 @Service
 public class TokenService {
     private static final Logger log = LoggerFactory.getLogger(TokenService.class);
+    private static final String TOKEN_PREFIX = "auth:jti:";
+
     private final StringRedisTemplate redis;
+    private final AccessTokenCache accessTokenCache;
+    private final Timer storeTimer;
+    private final Timer checkTimer;
+    private final Timer invalidateTimer;
+    private final Timer revokeAllTimer;
+    private final Counter allowListHits;
+    private final Counter allowListMisses;
 
-    public TokenService(StringRedisTemplate redis) {
+    public TokenService(StringRedisTemplate redis, AccessTokenCache accessTokenCache, MeterRegistry meterRegistry) {
         this.redis = redis;
+        this.accessTokenCache = accessTokenCache;
+        this.storeTimer = redisTimer(meterRegistry, "token.store");
+        this.checkTimer = redisTimer(meterRegistry, "token.check");
+        this.invalidateTimer = redisTimer(meterRegistry, "token.invalidate");
+        this.revokeAllTimer = redisTimer(meterRegistry, "token.revokeAll");
+        this.allowListHits = Counter.builder("isdstore.auth.allowlist").tag("result", "hit").register(meterRegistry);
+        this.allowListMisses = Counter.builder("isdstore.auth.allowlist").tag("result", "miss").register(meterRegistry);
+    }
+
+    private static Timer redisTimer(MeterRegistry registry, String op) {
+        return Timer.builder("isdstore.redis").description("Redis round trips").tag("op", op).register(registry);
     }
 
-    private String key(String typ, UUID userId, String token) {
-        return String.format("auth:%s:%s:%s", typ, userId, token);
+    private static String tokenKey(String jti) {
+        return TOKEN_PREFIX + jti;
     }
 
-    public void storeToken(String typ, UUID userId, String token, long ttlSeconds) {
-        String key = key(typ, userId, token);
-        redis.opsForValue().set(key, "1", Duration.ofSeconds(ttlSeconds));
-        log.info("Stored {} token in Redis for user {} with TTL {}s", typ, userId, ttlSeconds);
+    private static String sessionsKey(UUID userId) {
+        return "auth:sessions:" + userId;
     }
 
-    public boolean isTokenValid(String typ, UUID userId, String token) {
-        String key = key(typ, userId, token);
-        boolean exists = Boolean.TRUE.equals(redis.hasKey(key));
+    /**
+     * Allow-lists a freshly issued access/refresh pair in a single pipelined round trip,
+     * and prunes already expired entries from the user's session index.
+     */
+    public void storeSession(UUID userId, String accessJti, long accessTtlSeconds, String refreshJti, long refreshTtlSeconds) {
+        String sessions = sessionsKey(userId);
+        long now = System.currentTimeMillis();
+        storeTimer.record(() -> redis.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                ops.opsForValue().set(tokenKey(accessJti), "access", Duration.ofSeconds(accessTtlSeconds));
+                ops.opsForValue().set(tokenKey(refreshJti), "refresh", Duration.ofSeconds(refreshTtlSeconds));
+                ops.opsForZSet().add(sessions, accessJti, now + accessTtlSeconds * 1000);
+                ops.opsForZSet().add(sessions, refreshJti, now + refreshTtlSeconds * 1000);
+                ops.opsForZSet().removeRangeByScore(sessions, 0, now);
+                ops.expire(sessions, Duration.ofSeconds(Math.max(accessTtlSeconds, refreshTtlSeconds)));
+                return null;
+            }
+        }));
+        log.info("Stored session tokens in Redis for user {} (access TTL {}s, refresh TTL {}s)", userId, accessTtlSeconds, refreshTtlSeconds);
+    }
+
+    public boolean isTokenValid(String typ, String jti) {
+        boolean exists = Boolean.TRUE.equals(checkTimer.record(() -> redis.hasKey(tokenKey(jti))));
+        (exists ? allowListHits : allowListMisses).increment();
         if (!exists) {
-            log.warn("{} token not found/expired in Redis for user {}", typ, userId);
+            log.warn("{} token {} not found/expired in Redis", typ, jti);
         }
         return exists;
     }
 
-    public void invalidateToken(String typ, UUID userId, String token) {
-        String key = key(typ, userId, token);
-        redis.delete(key);
+    /**
+     * Atomically removes a refresh token from the allow-list. Only one caller can consume a
+     * given token, so concurrent or replayed refreshes of the same token get false.
+     */
+    public boolean consumeRefreshToken(UUID userId, String jti) {
+        return revoke(userId, jti);
+    }
+
+    /**
+     * Revokes one token. For access tokens the raw JWT is also dropped from the verified-token cache.
+     */
+    public void invalidateToken(String typ, UUID userId, String jti, String token) {
+        revoke(userId, jti);
+        if ("access".equals(typ)) {
+            accessTokenCache.revoke(token);
+        }
         log.info("Invalidated {} token for user {}", typ, userId);
     }
+
+    /**
+     * Logout everywhere: drops every allow-listed token of the user and their cached access tokens.
+     */
+    public long revokeAllSessions(UUID userId) {
+        Long removed = revokeAllTimer.record(() ->
+                redis.execute(TokenScripts.REVOKE_ALL, List.of(sessionsKey(userId)), TOKEN_PREFIX));
+        accessTokenCache.revokeUser(userId);
+        log.info("Revoked {} tokens for user {}", removed, userId);
+        return removed == null ? 0 : removed;
+    }
+
+    private boolean revoke(UUID userId, String jti) {
+        Long removed = invalidateTimer.record(() ->
+                redis.execute(TokenScripts.REVOKE, List.of(tokenKey(jti), sessionsKey(userId)), jti));
+        return removed != null && removed == 1L;
+    }
 }
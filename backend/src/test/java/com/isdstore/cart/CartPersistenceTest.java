@@ -0,0 +1,195 @@
+package com.isdstore.cart;
+
+import com.isdstore.products.ProductCatalogCache;
+import com.isdstore.support.Containers;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Write-behind against real Redis and Postgres: a cart written while it is being flushed stays dirty,
+ * a dirty cart is never overwritten by its stale Postgres copy, a cart lost from Redis is restored
+ * before the next write instead of being replaced, and large backlogs flush in batches.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class CartPersistenceTest {
+    private static final String TTL = "604800";
+    private static final Duration CART_TTL = Duration.ofDays(7);
+
+    static StringRedisTemplate redis;
+    static JdbcTemplate jdbc;
+
+    @BeforeAll
+    static void connect() {
+        redis = Containers.redisTemplate();
+        jdbc = new JdbcTemplate(Containers.dataSource());
+    }
+
+    @BeforeEach
+    void clean() {
+        redis.delete(List.of(CartPersistence.DIRTY_KEY, "cart:flush:lock"));
+    }
+
+    @Test
+    void writeDuringFlushKeepsCartDirty() {
+        UUID userId = user();
+        String first = UUID.randomUUID().toString();
+        String second = UUID.randomUUID().toString();
+        add(userId, first);
+
+        // The second write lands after the flush has read the score and the cart, before its ACK
+        JdbcTemplate racing = spy(jdbc);
+        AtomicBoolean raced = new AtomicBoolean();
+        doAnswer(inv -> {
+            if (raced.compareAndSet(false, true)) add(userId, second);
+            return inv.callRealMethod();
+        }).when(racing).batchUpdate(anyString(), anyList());
+
+        persistence(racing, 500).flush();
+        assertThat(persistedProducts(userId)).containsExactly(first);
+        assertThat(redis.opsForZSet().score(CartPersistence.DIRTY_KEY, userId.toString())).isEqualTo(2.0);
+
+        persistence(jdbc, 500).flush();
+        assertThat(persistedProducts(userId)).containsExactlyInAnyOrder(first, second);
+        assertThat(redis.opsForZSet().score(CartPersistence.DIRTY_KEY, userId.toString())).isNull();
+    }
+
+    @Test
+    void dirtyCartIsNotRehydratedFromStaleCopy() {
+        UUID userId = user();
+        String cartKey = CartService.CART_KEY_PREFIX + userId;
+        String product = UUID.randomUUID().toString();
+        add(userId, product);
+        persistence(jdbc, 500).flush();
+
+        // Emptied in Redis (key gone) but not flushed yet: Postgres still has the old line
+        redis.execute(CartScripts.REMOVE, List.of(cartKey, CartPersistence.DIRTY_KEY), product, TTL, userId.toString(), "0");
+        assertThat(redis.hasKey(cartKey)).isFalse();
+        persistence(jdbc, 500).restore(userId, cartKey, CART_TTL);
+        assertThat(redis.hasKey(cartKey)).isFalse();
+
+        persistence(jdbc, 500).flush();
+        assertThat(persistedProducts(userId)).isEmpty();
+        persistence(jdbc, 500).restore(userId, cartKey, CART_TTL);
+        assertThat(redis.hasKey(cartKey)).isFalse();
+    }
+
+    @Test
+    void evictedCleanCartIsRehydrated() {
+        UUID userId = user();
+        String cartKey = CartService.CART_KEY_PREFIX + userId;
+        String product = UUID.randomUUID().toString();
+        add(userId, product);
+        persistence(jdbc, 500).flush();
+        redis.delete(cartKey);
+
+        persistence(jdbc, 500).restore(userId, cartKey, CART_TTL);
+        assertThat(redis.opsForHash().entries(cartKey)).containsExactly(Map.entry(product, "1"));
+        assertThat(redis.getExpire(cartKey)).isPositive();
+    }
+
+    @Test
+    void cartLostFromRedisIsRestoredBeforeTheNextWrite() {
+        UUID userId = user();
+        String cartKey = CartService.CART_KEY_PREFIX + userId;
+        String saved = UUID.randomUUID().toString();
+        add(userId, saved);
+        persistence(jdbc, 500).flush();
+
+        // Redis loses the cart and the dirty set; this instance has just served the same user
+        CartService cartService = new CartService(redis, mock(ProductCatalogCache.class), persistence(jdbc, 500), new SimpleMeterRegistry());
+        cartService.getCartView(userId);
+        redis.delete(List.of(cartKey, CartPersistence.DIRTY_KEY));
+
+        UUID added = UUID.randomUUID();
+        cartService.addItem(userId, added, 2);
+        assertThat(redis.opsForHash().entries(cartKey))
+                .containsOnly(Map.entry(saved, "1"), Map.entry(added.toString(), "2"));
+
+        persistence(jdbc, 500).flush();
+        assertThat(persistedProducts(userId)).containsExactlyInAnyOrder(saved, added.toString());
+    }
+
+    @Test
+    void removeOnLostCartKeepsThePersistedLines() {
+        UUID userId = user();
+        String cartKey = CartService.CART_KEY_PREFIX + userId;
+        String kept = UUID.randomUUID().toString();
+        String removed = UUID.randomUUID().toString();
+        add(userId, kept);
+        add(userId, removed);
+        persistence(jdbc, 500).flush();
+        redis.delete(List.of(cartKey, CartPersistence.DIRTY_KEY));
+
+        // Without restoring first the script refuses to run, so the flush cannot delete the saved cart
+        assertThat(redis.execute(CartScripts.REMOVE, List.of(cartKey, CartPersistence.DIRTY_KEY),
+                removed, TTL, userId.toString(), "0")).containsExactly((Object) null);
+
+        new CartService(redis, mock(ProductCatalogCache.class), persistence(jdbc, 500), new SimpleMeterRegistry())
+                .removeItem(userId, UUID.fromString(removed));
+        persistence(jdbc, 500).flush();
+        assertThat(persistedProducts(userId)).containsExactly(kept);
+    }
+
+    @Test
+    void backlogIsFlushedInBatchesOfBatchSize() {
+        List<UUID> users = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            UUID userId = user();
+            add(userId, UUID.randomUUID().toString());
+            users.add(userId);
+        }
+
+        JdbcTemplate counting = spy(jdbc);
+        persistence(counting, 2).flush();
+
+        // 2 + 2 + 1: the short batch ends the run
+        verify(counting, times(3)).batchUpdate(anyString(), anyList());
+        for (UUID userId : users) {
+            assertThat(persistedProducts(userId)).hasSize(1);
+        }
+        assertThat(redis.opsForZSet().zCard(CartPersistence.DIRTY_KEY)).isZero();
+    }
+
+    private static CartPersistence persistence(JdbcTemplate jdbcTemplate, int batchSize) {
+        return new CartPersistence(redis, jdbcTemplate, new SimpleMeterRegistry(), batchSize, 5000);
+    }
+
+    private static void add(UUID userId, String productId) {
+        redis.execute(CartScripts.ADD, List.of(CartService.CART_KEY_PREFIX + userId, CartPersistence.DIRTY_KEY),
+                productId, "1", TTL, userId.toString(), "1");
+    }
+
+    private static UUID user() {
+        return jdbc.queryForObject("""
+                INSERT INTO users (email, password_hash, role_id)
+                SELECT ?, 'x', id FROM roles ORDER BY id LIMIT 1 RETURNING id
+                """, UUID.class, UUID.randomUUID() + "@cart.test");
+    }
+
+    private static List<String> persistedProducts(UUID userId) {
+        return jdbc.queryForList("""
+                SELECT it->>'productId' FROM carts, jsonb_array_elements(items) it WHERE user_id = ?
+                """, String.class, userId);
+    }
+}
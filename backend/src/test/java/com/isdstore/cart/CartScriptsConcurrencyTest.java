@@ -0,0 +1,159 @@
+package com.isdstore.cart;
+
+import com.isdstore.support.Containers;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Concurrent ADD/REMOVE calls on one cart: every script runs atomically, so no increment is lost,
+ * a legacy JSON cart is migrated exactly once, each write bumps the dirty set once, and clearing
+ * after checkout takes off the checked-out units exactly once.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class CartScriptsConcurrencyTest {
+    private static final int THREADS = 8;
+    private static final int OPS_PER_THREAD = 250;
+    private static final String TTL = "604800";
+    // Nothing is persisted for these users, so the scripts may start a cart from scratch
+    private static final String RESTORED = "1";
+
+    static StringRedisTemplate redis;
+
+    private final String userId = UUID.randomUUID().toString();
+    private final String cartKey = CartService.CART_KEY_PREFIX + userId;
+    private final List<String> keys = List.of(cartKey, CartPersistence.DIRTY_KEY);
+
+    @BeforeAll
+    static void connect() {
+        redis = Containers.redisTemplate();
+    }
+
+    @BeforeEach
+    void clean() {
+        redis.delete(List.of(cartKey, CartPersistence.DIRTY_KEY));
+    }
+
+    @Test
+    void concurrentAddsAndRemovesKeepExactQuantities() throws Exception {
+        String counted = UUID.randomUUID().toString();   // only ever incremented
+        String toggled = UUID.randomUUID().toString();   // added and removed by every thread
+
+        run(thread -> {
+            for (int i = 0; i < OPS_PER_THREAD; i++) {
+                redis.execute(CartScripts.ADD, keys, counted, "1", TTL, userId, RESTORED);
+                redis.execute(CartScripts.ADD, keys, toggled, "3", TTL, userId, RESTORED);
+                redis.execute(CartScripts.REMOVE, keys, toggled, TTL, userId, RESTORED);
+            }
+        });
+
+        Map<Object, Object> cart = redis.opsForHash().entries(cartKey);
+        assertThat(cart.get(counted)).isEqualTo(String.valueOf(THREADS * OPS_PER_THREAD));
+        // Whatever the interleaving, a line is either gone or holds whole +3 increments
+        Object last = cart.get(toggled);
+        assertThat(last == null || Integer.parseInt(last.toString()) % 3 == 0).isTrue();
+        assertThat(redis.opsForZSet().score(CartPersistence.DIRTY_KEY, userId))
+                .isEqualTo((double) THREADS * OPS_PER_THREAD * 3);
+        assertThat(redis.getExpire(cartKey)).isPositive();
+    }
+
+    @Test
+    void legacyCartIsMigratedOnceUnderConcurrentWrites() throws Exception {
+        String kept = UUID.randomUUID().toString();
+        String added = UUID.randomUUID().toString();
+        redis.opsForValue().set(cartKey, "[{\"productId\":\"" + kept + "\",\"quantity\":4}]");
+
+        run(thread -> {
+            for (int i = 0; i < OPS_PER_THREAD; i++) {
+                if (thread % 2 == 0) {
+                    redis.execute(CartScripts.ADD, keys, added, "1", TTL, userId, RESTORED);
+                } else {
+                    redis.execute(CartScripts.READ, keys, userId, RESTORED);
+                }
+            }
+        });
+
+        Map<Object, Object> cart = redis.opsForHash().entries(cartKey);
+        assertThat(cart).containsEntry(kept, "4")
+                .containsEntry(added, String.valueOf(THREADS / 2 * OPS_PER_THREAD))
+                .hasSize(2);
+    }
+
+    @Test
+    void removeManyTakesOffCheckedOutUnitsOnce() throws Exception {
+        List<String> checkedOut = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            String productId = UUID.randomUUID().toString();
+            checkedOut.add(productId);
+            redis.execute(CartScripts.ADD, keys, productId, "2", TTL, userId, RESTORED);
+        }
+        String topUp = checkedOut.get(0);   // checked out, then added again after checkout
+        String addedLater = UUID.randomUUID().toString();
+        List<String> clearKeys = List.of(cartKey, CartPersistence.DIRTY_KEY, "cart:cleared:" + UUID.randomUUID());
+
+        run(thread -> {
+            if (thread == 0) {
+                List<Object> args = new ArrayList<>(List.of(userId, RESTORED, TTL));
+                checkedOut.forEach(id -> {
+                    args.add(id);
+                    args.add("2");
+                });
+                // The outbox delivers at least once: the retry must change nothing
+                redis.execute(CartScripts.REMOVE_MANY, clearKeys, args.toArray());
+                redis.execute(CartScripts.REMOVE_MANY, clearKeys, args.toArray());
+            } else {
+                for (int i = 0; i < OPS_PER_THREAD; i++) {
+                    redis.execute(CartScripts.ADD, keys, addedLater, "1", TTL, userId, RESTORED);
+                    redis.execute(CartScripts.ADD, keys, topUp, "1", TTL, userId, RESTORED);
+                }
+            }
+        });
+
+        String addedSince = String.valueOf((THREADS - 1) * OPS_PER_THREAD);
+        assertThat(redis.opsForHash().entries(cartKey))
+                .containsOnlyKeys(addedLater, topUp)
+                .containsEntry(addedLater, addedSince)
+                .containsEntry(topUp, addedSince);
+    }
+
+    private interface Work {
+        void run(int thread) throws Exception;
+    }
+
+    // Starts every thread at the same instant and waits for all of them
+    private static void run(Work work) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                Callable<Void> task = () -> {
+                    start.await();
+                    work.run(thread);
+                    return null;
+                };
+                futures.add(pool.submit(task));
+            }
+            start.countDown();
+            for (Future<Void> f : futures) f.get(60, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.isdstore.cart;
+
+import com.isdstore.common.dto.CartViewDTO;
+import com.isdstore.common.entity.Product;
+import com.isdstore.common.repo.ProductRepository;
+import com.isdstore.products.ProductCatalogCache;
+import com.isdstore.support.Containers;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Pricing a cart resolves all of its products with one bulk query, whatever the cart size,
+ * and none once they are in the catalog cache.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+class CartServiceQueryCountTest {
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        Containers.postgres(registry);
+    }
+
+    @Autowired
+    ProductRepository productRepository;
+    @Autowired
+    EntityManager entityManager;
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 5, 40})
+    void cartViewIssuesOneProductQuery(int lines) {
+        List<Object> reply = new ArrayList<>();
+        for (int i = 0; i < lines; i++) {
+            Product p = new Product();
+            p.setTitle("Query count " + i);
+            p.setDescription("Fixture");
+            p.setPriceCents(100 + i);
+            p.setStock(10);
+            reply.add(productRepository.save(p).getId().toString());
+            reply.add("2");
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        StringRedisTemplate redis = mock(StringRedisTemplate.class);
+        doReturn(reply).when(redis).execute(eq(CartScripts.READ), anyList(), any(Object[].class));
+        ProductCatalogCache catalogCache = new ProductCatalogCache(productRepository, redis,
+                mock(RedisMessageListenerContainer.class), 10_000, 300);
+        CartService cartService = new CartService(redis, catalogCache, mock(CartPersistence.class), new SimpleMeterRegistry());
+        UUID userId = UUID.randomUUID();
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        CartViewDTO view = cartService.getCartView(userId);
+        assertThat(view.getItems()).hasSize(lines);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+        statistics.clear();
+        assertThat(cartService.getCartView(userId).getItems()).hasSize(lines);
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+}
@@ -0,0 +1,135 @@
+package com.isdstore.cart;
+
+import com.isdstore.common.dto.CartItemDTO;
+import com.isdstore.common.dto.CartViewDTO;
+import com.isdstore.common.dto.CartViewItemDTO;
+import com.isdstore.common.entity.Product;
+import com.isdstore.products.ProductCatalogCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.groups.Tuple.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Decoding of the flat HGETALL replies returned by the cart scripts, and the restore-then-retry on a
+ * nil reply, with Redis, the catalog and the write-behind mocked.
+ */
+class CartServiceTest {
+    private final StringRedisTemplate redis = mock(StringRedisTemplate.class);
+    private final ProductCatalogCache catalogCache = mock(ProductCatalogCache.class);
+    private final CartPersistence cartPersistence = mock(CartPersistence.class);
+    private final CartService cartService = new CartService(redis, catalogCache, cartPersistence, new SimpleMeterRegistry());
+    private final UUID userId = UUID.randomUUID();
+
+    @Test
+    void replyIsDecodedIntoPricedLines() {
+        Product chair = product(1500);
+        Product lamp = product(250);
+        reply(CartScripts.READ, chair.getId().toString(), "2", lamp.getId().toString(), "3");
+        catalog(chair, lamp);
+
+        CartViewDTO view = cartService.getCartView(userId);
+        assertThat(view.getItems()).extracting(i -> i.getProduct().getId(), CartViewItemDTO::getQuantity, CartViewItemDTO::getItemTotalCents)
+                .containsExactly(
+                        tuple(chair.getId(), 2, 3000),
+                        tuple(lamp.getId(), 3, 750));
+        assertThat(view.getTotalCents()).isEqualTo(3750);
+    }
+
+    @Test
+    void malformedEntriesAreSkipped() {
+        Product lamp = product(250);
+        reply(CartScripts.READ, "not-a-uuid", "1", UUID.randomUUID().toString(), "many", lamp.getId().toString(), "4", "dangling");
+        catalog(lamp);
+
+        List<CartItemDTO> items = cartService.getCart(userId).getItems();
+        assertThat(items).extracting(CartItemDTO::getProductId, CartItemDTO::getQuantity)
+                .containsExactly(tuple(lamp.getId(), 4));
+    }
+
+    @Test
+    void missingReplyIsAnEmptyCart() {
+        doReturn(null).when(redis).execute(eq(CartScripts.READ), anyList(), any(Object[].class));
+        catalog();
+
+        CartViewDTO view = cartService.getCartView(userId);
+        assertThat(view.getItems()).isEmpty();
+        assertThat(view.getTotalCents()).isZero();
+    }
+
+    @Test
+    void linesWhoseProductIsGoneAreLeftOutOfTheView() {
+        Product lamp = product(250);
+        UUID deleted = UUID.randomUUID();
+        reply(CartScripts.ADD, deleted.toString(), "1", lamp.getId().toString(), "1");
+        catalog(lamp);
+
+        CartViewDTO view = cartService.addItem(userId, lamp.getId(), 1);
+        assertThat(view.getItems()).extracting(i -> i.getProduct().getId()).containsExactly(lamp.getId());
+        assertThat(view.getTotalCents()).isEqualTo(250);
+    }
+
+    @Test
+    void cartMissingFromRedisIsRestoredBeforeTheWriteIsRetried() {
+        Product lamp = product(250);
+        catalog(lamp);
+        List<Object> flags = new ArrayList<>();
+        doAnswer(inv -> {
+            Object[] args = inv.getArguments();
+            flags.add(args[args.length - 1]);
+            return flags.size() == 1 ? Collections.singletonList(null) : List.of(lamp.getId().toString(), "1");
+        }).when(redis).execute(eq(CartScripts.ADD), anyList(), any(Object[].class));
+
+        CartViewDTO view = cartService.addItem(userId, lamp.getId(), 1);
+        assertThat(flags).containsExactly("0", "1");
+        InOrder order = inOrder(redis, cartPersistence);
+        order.verify(redis).execute(eq(CartScripts.ADD), anyList(), any(Object[].class));
+        order.verify(cartPersistence).restore(eq(userId), eq(CartService.CART_KEY_PREFIX + userId), any());
+        order.verify(redis).execute(eq(CartScripts.ADD), anyList(), any(Object[].class));
+        assertThat(view.getTotalCents()).isEqualTo(250);
+    }
+
+    private void reply(RedisScript<?> script, String... fields) {
+        doReturn(Arrays.asList((Object[]) fields)).when(redis).execute(eq(script), anyList(), any(Object[].class));
+    }
+
+    private void catalog(Product... products) {
+        Map<UUID, Product> byId = Arrays.stream(products).collect(Collectors.toMap(Product::getId, Function.identity()));
+        when(catalogCache.getAll(any())).thenAnswer(inv -> {
+            Collection<UUID> ids = inv.getArgument(0);
+            return byId.entrySet().stream().filter(e -> ids.contains(e.getKey()))
+                    .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        });
+    }
+
+    private static Product product(int priceCents) {
+        Product p = new Product();
+        p.setId(UUID.randomUUID());
+        p.setTitle("Unit " + priceCents);
+        p.setPriceCents(priceCents);
+        p.setStock(10);
+        return p;
+    }
+}
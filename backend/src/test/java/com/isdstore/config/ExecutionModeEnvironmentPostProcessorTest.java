@@ -0,0 +1,33 @@
+package com.isdstore.config;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Resolution of app.threads.virtual against the Java feature version of the runtime.
+ */
+class ExecutionModeEnvironmentPostProcessorTest {
+
+    @Test
+    void autoFollowsTheRuntime() {
+        assertThat(ExecutionModeEnvironmentPostProcessor.resolve("auto", 17)).isFalse();
+        assertThat(ExecutionModeEnvironmentPostProcessor.resolve("auto", 21)).isTrue();
+    }
+
+    @Test
+    void explicitValuesAreHonouredWhereTheyTakeEffect() {
+        assertThat(ExecutionModeEnvironmentPostProcessor.resolve("false", 21)).isFalse();
+        assertThat(ExecutionModeEnvironmentPostProcessor.resolve(" TRUE ", 21)).isTrue();
+    }
+
+    @Test
+    void virtualThreadsOnAnOlderRuntimeFailStartup() {
+        assertThatThrownBy(() -> ExecutionModeEnvironmentPostProcessor.resolve("true", 17))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Java 17");
+        assertThatThrownBy(() -> ExecutionModeEnvironmentPostProcessor.resolve("yes", 21))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
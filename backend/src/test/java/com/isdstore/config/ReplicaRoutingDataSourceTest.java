@@ -0,0 +1,92 @@
+package com.isdstore.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Routing decisions with mocked pools: a read-only transaction reaches a replica only inside
+ * onReplica, writes never do, and onPrimary wins over an enclosing replica scope.
+ */
+class ReplicaRoutingDataSourceTest {
+    private ReplicaRoutingDataSource routing;
+
+    @BeforeEach
+    void healthyReplica() throws Exception {
+        ResultSet lag = mock(ResultSet.class);
+        when(lag.next()).thenReturn(true);
+        when(lag.getLong(1)).thenReturn(0L);
+        Statement statement = mock(Statement.class);
+        when(statement.executeQuery(anyString())).thenReturn(lag);
+        Connection connection = mock(Connection.class);
+        when(connection.createStatement()).thenReturn(statement);
+        DataSource replica = mock(DataSource.class);
+        when(replica.getConnection()).thenReturn(connection);
+
+        routing = new ReplicaRoutingDataSource(mock(DataSource.class), Map.of("replica-1", replica), 1000, 60_000, new SimpleMeterRegistry());
+        routing.checkLag();
+    }
+
+    @AfterEach
+    void close() {
+        routing.close();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+    }
+
+    @Test
+    void readOnlyTransactionsStayOnThePrimaryWithoutOptIn() {
+        readOnlyTransaction();
+        assertThat(routing.determineCurrentLookupKey()).isEqualTo(ReplicaRoutingDataSource.PRIMARY);
+    }
+
+    @Test
+    void optedInReadOnlyTransactionsGoToAReplica() {
+        readOnlyTransaction();
+        assertThat(ReplicaRoutingDataSource.onReplica(routing::determineCurrentLookupKey)).isEqualTo("replica-1");
+        // The scope ends with the call
+        assertThat(routing.determineCurrentLookupKey()).isEqualTo(ReplicaRoutingDataSource.PRIMARY);
+    }
+
+    @Test
+    void writesInsideTheScopeStayOnThePrimary() {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        assertThat(ReplicaRoutingDataSource.onReplica(routing::determineCurrentLookupKey)).isEqualTo(ReplicaRoutingDataSource.PRIMARY);
+    }
+
+    @Test
+    void onPrimaryWinsOverAnEnclosingScope() {
+        Object key = ReplicaRoutingDataSource.onReplica(() -> ReplicaRoutingDataSource.onPrimary(() -> {
+            // A transaction started here, as a repository call would
+            readOnlyTransaction();
+            return routing.determineCurrentLookupKey();
+        }));
+        assertThat(key).isEqualTo(ReplicaRoutingDataSource.PRIMARY);
+    }
+
+    @Test
+    void onPrimaryInsideAReplicaTransactionFails() {
+        readOnlyTransaction();
+        assertThatThrownBy(() -> ReplicaRoutingDataSource.onReplica(() -> ReplicaRoutingDataSource.onPrimary(() -> "stale")))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    private static void readOnlyTransaction() {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    }
+}
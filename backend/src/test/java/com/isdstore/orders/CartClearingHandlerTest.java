@@ -0,0 +1,55 @@
+package com.isdstore.orders;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.isdstore.cart.CartService;
+import com.isdstore.outbox.OutboxEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Payload decoding of order.created: checked-out quantities are passed on per order, and events
+ * written before quantities were recorded still remove their whole lines.
+ */
+class CartClearingHandlerTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CartService cartService = mock(CartService.class);
+    private final CartClearingHandler handler = new CartClearingHandler(cartService);
+    private final UUID orderId = UUID.randomUUID();
+    private final UUID userId = UUID.randomUUID();
+
+    @Test
+    void checkedOutQuantitiesAreTakenOff() {
+        UUID chair = UUID.randomUUID();
+        UUID lamp = UUID.randomUUID();
+        Map<UUID, Integer> quantities = new LinkedHashMap<>();
+        quantities.put(chair, 2);
+        quantities.put(lamp, 5);
+
+        handler.handle(event(new OrderEvents.OrderCreated(orderId, userId, 1234, quantities)));
+        verify(cartService).removeItems(userId, orderId, quantities);
+    }
+
+    @Test
+    void legacyPayloadRemovesWholeLines() {
+        UUID chair = UUID.randomUUID();
+        Map<String, Object> legacy = Map.of(
+                "orderId", orderId, "userId", userId, "totalCents", 1234, "cartProductIds", List.of(chair));
+
+        handler.handle(event(legacy));
+        verify(cartService).removeItems(userId, orderId, Map.of(chair, Integer.MAX_VALUE));
+    }
+
+    private OutboxEvent event(Object payload) {
+        OutboxEvent event = mock(OutboxEvent.class);
+        when(event.getPayload()).thenReturn(objectMapper.valueToTree(payload));
+        return event;
+    }
+}
@@ -0,0 +1,169 @@
+package com.isdstore.orders;
+
+import com.isdstore.common.entity.Product;
+import com.isdstore.common.repo.ProductRepository;
+import com.isdstore.inventory.HotStockService;
+import com.isdstore.products.ProductCatalogCache;
+import com.isdstore.support.Containers;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Hot counters against real Redis and Postgres across the sequences that used to oversell: the mode
+ * switched off and on again, a product's flag cleared and set again, and a hold still open when the
+ * row-locked path sells the same product. Each sells exactly the stock, which never goes negative.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Testcontainers(disabledWithoutDocker = true)
+class HotStockModeTest {
+    private static final int STOCK = 10;
+    private static final int ALL = 100;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        Containers.postgres(registry);
+    }
+
+    static StringRedisTemplate redis;
+
+    @Autowired
+    ProductRepository productRepository;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @BeforeAll
+    static void connect() {
+        redis = Containers.redisTemplate();
+    }
+
+    @Test
+    void modeSwitchedOffAndOnAgainDoesNotOversell() {
+        UUID id = hotProduct();
+        int sold = reserve(instance(true), id, 3);
+
+        // Restarted with the mode off: sells from the row, minus the 3 units still in the ledger
+        assertThat(reserve(instance(false), id, ALL)).isEqualTo(STOCK - 3);
+        sold += STOCK - 3;
+
+        // And on again: the old counter (7 left) must not be reused
+        sold += reserve(instance(true), id, ALL);
+
+        assertSoldOut(id, sold);
+    }
+
+    @Test
+    void flagClearedAndSetAgainDoesNotOversell() {
+        UUID id = hotProduct();
+        Instance on = instance(true);
+        int sold = reserve(on, id, 4);
+
+        setHot(id, false);
+        sold += reserve(on, id, ALL);
+        assertThat(redis.hasKey("stock:" + id)).isFalse();
+
+        setHot(id, true);
+        sold += reserve(on, id, ALL);
+
+        assertSoldOut(id, sold);
+    }
+
+    @Test
+    void openHoldIsNotSoldAgainFromTheRow() throws Exception {
+        UUID id = hotProduct();
+        Instance on = instance(true);
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            // A hot checkout has taken 5 units and not committed yet...
+            Future<Integer> first = pool.submit(() -> new TransactionTemplate(transactionManager).execute(status -> {
+                int qty = units(on.reservations.reserve(Map.of(id, 5)));
+                held.countDown();
+                try {
+                    proceed.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return qty;
+            }));
+            assertThat(held.await(30, TimeUnit.SECONDS)).isTrue();
+
+            // ...when the flag is cleared and the row-locked path sells the rest
+            setHot(id, false);
+            int sold = reserve(on, id, ALL);
+            proceed.countDown();
+            sold += first.get(30, TimeUnit.SECONDS);
+
+            assertSoldOut(id, sold);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private record Instance(HotStockService hotStock, StockReservationService reservations) {
+    }
+
+    // One application instance as started with the given mode
+    private Instance instance(boolean hotMode) {
+        HotStockService hotStock = new HotStockService(redis, jdbcTemplate, mock(ProductCatalogCache.class), new SimpleMeterRegistry(), hotMode, 500, 120_000, 24);
+        hotStock.resetCounters();
+        return new Instance(hotStock, new StockReservationService(jdbcTemplate, hotStock));
+    }
+
+    private int reserve(Instance instance, UUID id, int quantity) {
+        return new TransactionTemplate(transactionManager).execute(status -> units(instance.reservations.reserve(Map.of(id, quantity))));
+    }
+
+    private static int units(List<ReservedItem> items) {
+        return items.stream().mapToInt(ReservedItem::getQuantity).sum();
+    }
+
+    private void assertSoldOut(UUID id, int sold) {
+        assertThat(sold).isEqualTo(STOCK);
+        instance(false).hotStock.reconcile();
+        assertThat(jdbcTemplate.queryForObject("SELECT stock FROM products WHERE id = ?", Integer.class, id)).isZero();
+    }
+
+    private UUID hotProduct() {
+        Product p = new Product();
+        p.setTitle("Flash sale " + UUID.randomUUID());
+        p.setDescription("Fixture");
+        p.setPriceCents(900);
+        p.setStock(STOCK);
+        p.setHotStock(true);
+        return productRepository.save(p).getId();
+    }
+
+    private void setHot(UUID id, boolean hot) {
+        jdbcTemplate.update("UPDATE products SET hot_stock = ? WHERE id = ?", hot, id);
+    }
+}
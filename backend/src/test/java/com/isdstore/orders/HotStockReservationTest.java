@@ -0,0 +1,213 @@
+package com.isdstore.orders;
+
+import com.isdstore.common.entity.Product;
+import com.isdstore.common.repo.ProductRepository;
+import com.isdstore.inventory.HotStockService;
+import com.isdstore.inventory.HotStockUnavailableException;
+import com.isdstore.products.ProductCatalogCache;
+import com.isdstore.support.Containers;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Hot checkouts against real Redis and Postgres: concurrent reservations sell exactly the stock,
+ * a rolled back reservation gives its units back, and reconciliation brings products.stock to zero.
+ * A hold whose transaction is still running survives the sweeper and a loss of its Redis keys.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Testcontainers(disabledWithoutDocker = true)
+class HotStockReservationTest {
+    private static final int STOCK = 10;
+    private static final int CHECKOUTS = 24;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        Containers.postgres(registry);
+    }
+
+    static StringRedisTemplate redis;
+
+    @Autowired
+    ProductRepository productRepository;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    private final ProductCatalogCache catalogCache = mock(ProductCatalogCache.class);
+    private HotStockService hotStock;
+    private StockReservationService reservations;
+
+    @BeforeAll
+    static void connect() {
+        redis = Containers.redisTemplate();
+    }
+
+    @BeforeEach
+    void wire() {
+        hotStock = new HotStockService(redis, jdbcTemplate, catalogCache, new SimpleMeterRegistry(), true, 500, 120_000, 24);
+        reservations = new StockReservationService(jdbcTemplate, hotStock);
+    }
+
+    @Test
+    void concurrentHotCheckoutsSellExactlyTheStock() throws Exception {
+        UUID id = hotProduct();
+        ExecutorService pool = Executors.newFixedThreadPool(CHECKOUTS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> checkouts = new ArrayList<>();
+        for (int i = 0; i < CHECKOUTS; i++) {
+            int quantity = 1 + i % 3;
+            checkouts.add(pool.submit(() -> {
+                start.await();
+                return reserve(id, quantity);
+            }));
+        }
+        start.countDown();
+
+        int sold = 0;
+        try {
+            for (Future<Integer> checkout : checkouts) sold += checkout.get(60, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertSoldOut(id, sold);
+    }
+
+    @Test
+    void rolledBackReservationGoesBackToTheCounter() {
+        UUID id = hotProduct();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            assertThat(units(reservations.reserve(Map.of(id, 6)))).isEqualTo(6);
+            status.setRollbackOnly();
+        });
+
+        assertSoldOut(id, reserve(id, 100));
+    }
+
+    @Test
+    void sweepLeavesTheHoldOfASlowCommitAlone() throws Exception {
+        UUID id = hotProduct();
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<Integer> slow = pool.submit(() -> reserveAndWait(id, 4, held, proceed));
+            assertThat(held.await(30, TimeUnit.SECONDS)).isTrue();
+
+            // Every hold is past a zero timeout, but this one's ledger rows are not committed yet
+            new HotStockService(redis, jdbcTemplate, catalogCache, new SimpleMeterRegistry(), true, 500, 0, 24).sweepHolds();
+            assertThat(redis.opsForValue().get("stock:held:" + id)).isEqualTo("4");
+
+            proceed.countDown();
+            int sold = slow.get(30, TimeUnit.SECONDS);
+            assertSoldOut(id, sold + reserve(id, 100));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void countersAreNotSeededWhileHoldsLostFromRedisMayStillCommit() throws Exception {
+        UUID id = hotProduct();
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<Integer> slow = pool.submit(() -> reserveAndWait(id, 4, held, proceed));
+            assertThat(held.await(30, TimeUnit.SECONDS)).isTrue();
+
+            // Redis loses the counter, the hold and the held total while the checkout is still running
+            List<String> lost = new ArrayList<>(List.of("stock:" + id, "stock:held:" + id, "stock:holds", "stock:epoch"));
+            redis.opsForZSet().range("stock:holds", 0, -1).forEach(hold -> lost.add("stock:hold:" + hold));
+            redis.delete(lost);
+            assertThatThrownBy(() -> reserve(id, 100)).isInstanceOf(HotStockUnavailableException.class);
+
+            proceed.countDown();
+            int sold = slow.get(30, TimeUnit.SECONDS);
+            assertSoldOut(id, sold + reserve(id, 100));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void reconcileEvictsTheReconciledProducts() {
+        UUID id = hotProduct();
+        assertSoldOut(id, reserve(id, 100));
+        // The batch may carry rows of other products too
+        verify(catalogCache).invalidate(argThat((Collection<UUID> ids) -> ids.contains(id)));
+    }
+
+    // Reserves in a transaction that stays open until proceed is counted down
+    private int reserveAndWait(UUID id, int quantity, CountDownLatch held, CountDownLatch proceed) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            int qty = units(reservations.reserve(Map.of(id, quantity)));
+            held.countDown();
+            try {
+                proceed.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return qty;
+        });
+    }
+
+    private int reserve(UUID id, int quantity) {
+        return new TransactionTemplate(transactionManager).execute(status -> units(reservations.reserve(Map.of(id, quantity))));
+    }
+
+    private static int units(List<ReservedItem> items) {
+        return items.stream().mapToInt(ReservedItem::getQuantity).sum();
+    }
+
+    private void assertSoldOut(UUID id, int sold) {
+        assertThat(sold).isEqualTo(STOCK);
+        assertThat(redis.opsForValue().get("stock:" + id)).isEqualTo("0");
+        hotStock.reconcile();
+        assertThat(jdbcTemplate.queryForObject("SELECT stock FROM products WHERE id = ?", Integer.class, id)).isZero();
+    }
+
+    private UUID hotProduct() {
+        Product p = new Product();
+        p.setTitle("Flash sale " + UUID.randomUUID());
+        p.setDescription("Fixture");
+        p.setPriceCents(900);
+        p.setStock(STOCK);
+        p.setHotStock(true);
+        return productRepository.save(p).getId();
+    }
+}
@@ -0,0 +1,150 @@
+package com.isdstore.orders;
+
+import com.isdstore.common.entity.Product;
+import com.isdstore.common.repo.ProductRepository;
+import com.isdstore.inventory.HotStockService;
+import com.isdstore.products.ProductCatalogCache;
+import com.isdstore.support.Containers;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Concurrent checkouts competing for the same rows never sell more than the stock, never drive it
+ * negative and never deadlock, whatever order the cart lines come in. Stock is read from the locked
+ * row, even when the checkout transaction loaded the product before.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(StockReservationService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Testcontainers(disabledWithoutDocker = true)
+class StockReservationConcurrencyTest {
+    private static final int STOCK = 8;
+    private static final int CHECKOUTS = 24;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        Containers.postgres(registry);
+    }
+
+    @MockBean
+    HotStockService hotStockService;   // disabled: every product takes the row-lock path
+    @MockBean
+    ProductCatalogCache catalogCache;
+
+    @Autowired
+    StockReservationService stockReservationService;
+    @Autowired
+    ProductRepository productRepository;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Test
+    void concurrentCheckoutsNeverOversell() throws Exception {
+        UUID first = product(STOCK);
+        UUID second = product(STOCK);
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        ExecutorService pool = Executors.newFixedThreadPool(CHECKOUTS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<ReservedItem>>> checkouts = new ArrayList<>();
+        for (int i = 0; i < CHECKOUTS; i++) {
+            // Half the carts list the products in the opposite order, so unordered locking would deadlock
+            Map<UUID, Integer> cart = new LinkedHashMap<>();
+            if (i % 2 == 0) {
+                cart.put(first, 1 + i % 3);
+                cart.put(second, 1);
+            } else {
+                cart.put(second, 2);
+                cart.put(first, 1);
+            }
+            checkouts.add(pool.submit(() -> {
+                start.await();
+                return tx.execute(status -> stockReservationService.reserve(cart));
+            }));
+        }
+        start.countDown();
+
+        Map<UUID, Integer> sold = new LinkedHashMap<>(Map.of(first, 0, second, 0));
+        try {
+            for (Future<List<ReservedItem>> checkout : checkouts) {
+                for (ReservedItem item : checkout.get(60, TimeUnit.SECONDS)) {
+                    assertThat(item.getQuantity()).isPositive();
+                    sold.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // Demand far exceeds supply, so all stock is sold, and not one unit more
+        for (UUID id : List.of(first, second)) {
+            assertThat(sold.get(id)).isEqualTo(STOCK);
+            assertThat(stock(id)).isZero();
+        }
+    }
+
+    @Test
+    void productLoadedEarlierInTheTransactionDoesNotHideLaterSales() {
+        UUID id = product(STOCK);
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        List<ReservedItem> reserved = tx.execute(status -> {
+            // Checkout prices the cart first, which may load the product into this persistence context...
+            assertThat(productRepository.findById(id)).get().extracting(Product::getStock).isEqualTo(STOCK);
+            // ...before another checkout sells part of the stock
+            new TransactionTemplate(transactionManager, requiresNew()).executeWithoutResult(
+                    inner -> stockReservationService.reserve(Map.of(id, 3)));
+            return stockReservationService.reserve(Map.of(id, STOCK));
+        });
+
+        assertThat(reserved).extracting(ReservedItem::getQuantity).containsExactly(STOCK - 3);
+        assertThat(stock(id)).isZero();
+    }
+
+    private static DefaultTransactionDefinition requiresNew() {
+        return new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    private UUID product(int stock) {
+        Product p = new Product();
+        p.setTitle("Contended " + UUID.randomUUID());
+        p.setDescription("Fixture");
+        p.setPriceCents(500);
+        p.setStock(stock);
+        return productRepository.save(p).getId();
+    }
+
+    private int stock(UUID id) {
+        return jdbcTemplate.queryForObject("SELECT stock FROM products WHERE id = ?", Integer.class, id);
+    }
+}
@@ -0,0 +1,154 @@
+package com.isdstore.orders;
+
+import com.isdstore.inventory.HotStockService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.groups.Tuple.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * The row-locked path with the database mocked: each line takes min(requested, stock - claimed),
+ * empty lines stay out of the decrement batch, and a decrement that misses aborts the checkout.
+ * Hot lines are priced from the rows read in the checkout transaction.
+ */
+class StockReservationServiceTest {
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final HotStockService hotStockService = mock(HotStockService.class);
+    private final StockReservationService service = new StockReservationService(jdbcTemplate, hotStockService);
+
+    private final List<Object[]> lockedRows = new ArrayList<>();
+    private final List<Object[]> hotRows = new ArrayList<>();
+    private final List<Object[]> batch = new ArrayList<>();
+    private final Map<UUID, Integer> claimed = new LinkedHashMap<>();
+    private int[] updateCounts;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void mockDatabase() {
+        when(jdbcTemplate.query(anyString(), any(PreparedStatementSetter.class), any(RowMapper.class))).thenAnswer(inv -> {
+            RowMapper<Object> mapper = inv.getArgument(2);
+            List<Object> mapped = new ArrayList<>();
+            List<Object[]> rows = inv.<String>getArgument(0).contains("FOR UPDATE") ? lockedRows : hotRows;
+            for (Object[] row : rows) mapped.add(mapper.mapRow(resultSet(row), mapped.size()));
+            return mapped;
+        });
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(inv -> {
+            batch.addAll(inv.<List<Object[]>>getArgument(1));
+            return updateCounts != null ? updateCounts : ones(batch.size());
+        });
+        when(hotStockService.claimedUnits(any(), any())).thenReturn(claimed);
+    }
+
+    @Test
+    void eachLineTakesWhatIsLeft() {
+        UUID partial = row(3);
+        UUID soldOut = row(0);
+        UUID claimedByHolds = row(10);
+        UUID deleted = UUID.randomUUID();
+        claimed.put(claimedByHolds, 8);
+
+        Map<UUID, Integer> requested = new LinkedHashMap<>();
+        requested.put(partial, 5);
+        requested.put(soldOut, 2);
+        requested.put(claimedByHolds, 3);
+        requested.put(deleted, 1);
+        List<ReservedItem> reserved = service.reserve(requested);
+
+        assertThat(reserved).extracting(ReservedItem::getProductId, ReservedItem::getQuantity, ReservedItem::getTotalCents)
+                .containsExactly(tuple(partial, 3, 3 * 700), tuple(claimedByHolds, 2, 2 * 700));
+        assertThat(batch).containsExactly(new Object[]{3, partial, 3}, new Object[]{2, claimedByHolds, 2});
+    }
+
+    @Test
+    void nothingInStockRunsNoUpdate() {
+        UUID soldOut = row(0);
+        UUID claimedByHolds = row(4);
+        claimed.put(claimedByHolds, 4);
+
+        assertThat(service.reserve(Map.of(soldOut, 1, claimedByHolds, 1))).isEmpty();
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    void missedDecrementAbortsTheCheckout() {
+        UUID id = row(5);
+        updateCounts = new int[]{0};
+
+        assertThatThrownBy(() -> service.reserve(Map.of(id, 2)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining(id.toString());
+    }
+
+    @Test
+    void hotLinesArePricedFromTheDatabase() {
+        when(hotStockService.isEnabled()).thenReturn(true);
+        UUID hot = UUID.randomUUID();
+        hotRows.add(new Object[]{hot, "Flash sale", 450, 0, true});
+        UUID cold = row(5);
+        UUID deleted = UUID.randomUUID();
+        when(hotStockService.reserve(Map.of(hot, 3))).thenReturn(Map.of(hot, 2));
+
+        Map<UUID, Integer> requested = new LinkedHashMap<>();
+        requested.put(hot, 3);
+        requested.put(cold, 1);
+        requested.put(deleted, 4);
+        assertThat(service.reserve(requested))
+                .extracting(ReservedItem::getProductId, ReservedItem::getTitle, ReservedItem::getTotalCents)
+                .containsExactlyInAnyOrder(tuple(hot, "Flash sale", 2 * 450), tuple(cold, "Locked 5", 700));
+    }
+
+    @Test
+    void productFlaggedUnderItsLockGoesToTheCounters() {
+        when(hotStockService.isEnabled()).thenReturn(true);
+        UUID flagged = UUID.randomUUID();
+        lockedRows.add(new Object[]{flagged, "Flagged", 300, 9, true});
+        when(hotStockService.reserve(Map.of(flagged, 4))).thenReturn(Map.of(flagged, 4));
+
+        assertThat(service.reserve(Map.of(flagged, 4)))
+                .extracting(ReservedItem::getTitle, ReservedItem::getTotalCents)
+                .containsExactly(tuple("Flagged", 4 * 300));
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+
+    private UUID row(int stock) {
+        UUID id = UUID.randomUUID();
+        lockedRows.add(new Object[]{id, "Locked " + stock, 700, stock, false});
+        return id;
+    }
+
+    private static ResultSet resultSet(Object[] row) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getObject("id", UUID.class)).thenReturn((UUID) row[0]);
+        when(rs.getString("title")).thenReturn((String) row[1]);
+        when(rs.getInt("price_cents")).thenReturn((Integer) row[2]);
+        when(rs.getInt("stock")).thenReturn((Integer) row[3]);
+        when(rs.getBoolean("hot_stock")).thenReturn((Boolean) row[4]);
+        return rs;
+    }
+
+    private static int[] ones(int n) {
+        int[] counts = new int[n];
+        Arrays.fill(counts, 1);
+        return counts;
+    }
+}
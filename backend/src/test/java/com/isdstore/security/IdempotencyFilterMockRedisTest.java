@@ -0,0 +1,198 @@
+package com.isdstore.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Fingerprint comparison and Redis failure handling with Redis mocked: a stored result or claim is
+ * only reused for the same query string and body, and a Redis error before or after the handler
+ * never turns into an error response.
+ */
+class IdempotencyFilterMockRedisTest {
+    private static final String PATH = "/api/checkout";
+    private static final String BODY = "{\"note\":\"gift\"}";
+
+    @SuppressWarnings("unchecked")
+    private final ValueOperations<String, String> values = mock(ValueOperations.class);
+    private final StringRedisTemplate redis = mock(StringRedisTemplate.class);
+    // waitMillis = 0: an in-flight claim answers 409 on the first poll
+    private final IdempotencyFilter filter = new IdempotencyFilter(redis, new SimpleMeterRegistry(), List.of(PATH), 60, 60, 0);
+    private final AtomicInteger handled = new AtomicInteger();
+
+    private final FilterChain handler = (req, res) -> {
+        handled.incrementAndGet();
+        String body = new String(req.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        ((HttpServletResponse) res).setStatus(201);
+        res.setContentType("application/json");
+        res.getWriter().write("{\"echo\":" + body + "}");
+        res.getWriter().flush();
+    };
+
+    @BeforeEach
+    void authenticate() {
+        when(redis.opsForValue()).thenReturn(values);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(UUID.randomUUID().toString(), null, List.of()));
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void fingerprintCoversQueryStringAndBody() {
+        byte[] body = BODY.getBytes(StandardCharsets.UTF_8);
+        assertThat(IdempotencyFilter.fingerprint(null, body)).isEqualTo(IdempotencyFilter.fingerprint(null, body.clone()));
+        assertThat(IdempotencyFilter.fingerprint("a=1", body)).isNotEqualTo(IdempotencyFilter.fingerprint(null, body));
+        // The separator keeps a query string from being confused with the start of the body
+        assertThat(IdempotencyFilter.fingerprint("a", new byte[0]))
+                .isNotEqualTo(IdempotencyFilter.fingerprint(null, "a".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void storedResultIsReplayedOnlyForTheSameBody() throws Exception {
+        claimedElsewhere(storedResult(fingerprint(BODY)));
+
+        MockHttpServletResponse same = send(BODY);
+        assertThat(same.getStatus()).isEqualTo(201);
+        assertThat(same.getHeader("Idempotent-Replayed")).isEqualTo("true");
+        assertThat(same.getContentAsString()).isEqualTo("{\"id\":\"order-1\"}");
+
+        MockHttpServletResponse other = send("{\"note\":\"other\"}");
+        assertThat(other.getStatus()).isEqualTo(422);
+        assertThat(handled).hasValue(0);
+    }
+
+    @Test
+    void inFlightClaimForAnotherBodyIsRejected() throws Exception {
+        claimedElsewhere("in_flight:" + fingerprint("{\"note\":\"other\"}"));
+        assertThat(send(BODY).getStatus()).isEqualTo(422);
+
+        claimedElsewhere("in_flight:" + fingerprint(BODY));
+        assertThat(send(BODY).getStatus()).isEqualTo(409);
+        assertThat(handled).hasValue(0);
+    }
+
+    @Test
+    void resultStoredWithoutFingerprintIsReplayed() throws Exception {
+        claimedElsewhere("{\"status\":201,\"contentType\":\"application/json\",\"body\":\"{}\"}");
+
+        MockHttpServletResponse response = send("{\"note\":\"anything\"}");
+        assertThat(response.getStatus()).isEqualTo(201);
+        assertThat(response.getHeader("Idempotent-Replayed")).isEqualTo("true");
+    }
+
+    @Test
+    void redisFailureWhilePollingRunsTheRequest() throws Exception {
+        when(values.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(false);
+        when(values.get(anyString())).thenThrow(new RedisConnectionFailureException("down"));
+
+        MockHttpServletResponse response = send(BODY);
+        assertThat(response.getStatus()).isEqualTo(201);
+        assertThat(handled).hasValue(1);
+    }
+
+    @Test
+    void redisFailureStoringTheResultStillReturnsTheHandlerResponse() throws Exception {
+        when(values.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(true);
+        doThrow(new RedisConnectionFailureException("down")).when(values).set(anyString(), anyString(), any(Duration.class));
+
+        MockHttpServletResponse response = send(BODY);
+        assertThat(response.getStatus()).isEqualTo(201);
+        assertThat(response.getContentAsString()).isEqualTo("{\"echo\":" + BODY + "}");
+        // The claim is kept so that a retry cannot run the handler again right away
+        verify(redis, never()).delete(anyString());
+    }
+
+    @Test
+    void cachedBodyServesReadListeners() throws Exception {
+        when(values.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(true);
+        List<String> events = new ArrayList<>();
+        ByteArrayOutputStream read = new ByteArrayOutputStream();
+        FilterChain async = (req, res) -> {
+            ServletInputStream in = req.getInputStream();
+            in.setReadListener(new ReadListener() {
+                @Override
+                public void onDataAvailable() throws IOException {
+                    events.add("data");
+                    read.write(in.readAllBytes());
+                }
+
+                @Override
+                public void onAllDataRead() {
+                    events.add("done");
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    events.add("error");
+                }
+            });
+            ((HttpServletResponse) res).setStatus(204);
+        };
+
+        filter.doFilter(request(BODY), new MockHttpServletResponse(), async);
+        assertThat(events).containsExactly("data", "done");
+        assertThat(read.toString(StandardCharsets.UTF_8)).isEqualTo(BODY);
+    }
+
+    private void claimedElsewhere(String stored) {
+        when(values.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(false);
+        when(values.get(anyString())).thenReturn(stored);
+    }
+
+    private static String storedResult(String fingerprint) {
+        return "{\"fingerprint\":\"" + fingerprint + "\",\"status\":201,\"contentType\":\"application/json\","
+                + "\"body\":\"{\\\"id\\\":\\\"order-1\\\"}\"}";
+    }
+
+    private static String fingerprint(String body) {
+        return IdempotencyFilter.fingerprint(null, body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private MockHttpServletResponse send(String body) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request(body), response, handler);
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", PATH);
+        request.addHeader(IdempotencyFilter.HEADER, "key-1");
+        request.setContentType("application/json");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+}
@@ -0,0 +1,139 @@
+package com.isdstore.security;
+
+import com.isdstore.support.Containers;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The filter in front of a slow handler, against real Redis: concurrent duplicates run the handler
+ * once and all get its response; a key reused for a different body gets 422.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class IdempotencyFilterTest {
+    private static final String PATH = "/api/checkout";
+    private static final int THREADS = 12;
+
+    static StringRedisTemplate redis;
+
+    private final IdempotencyFilter filter = new IdempotencyFilter(redis, new SimpleMeterRegistry(),
+            List.of(PATH), 60, 60, 10_000);
+    private final UUID userId = UUID.randomUUID();
+    private final String key = UUID.randomUUID().toString();
+    private final AtomicInteger handled = new AtomicInteger();
+
+    // Stands in for the checkout handler: slow enough for every duplicate to arrive while it runs
+    private final FilterChain handler = (req, res) -> {
+        int run = handled.incrementAndGet();
+        String body = new String(req.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        try {
+            Thread.sleep(300);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        ((HttpServletResponse) res).setStatus(201);
+        res.setContentType("application/json");
+        res.getWriter().write("{\"run\":" + run + ",\"echo\":\"" + body + "\"}");
+        res.getWriter().flush();
+    };
+
+    @BeforeAll
+    static void connect() {
+        redis = Containers.redisTemplate();
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void concurrentDuplicatesRunTheHandlerOnce() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<MockHttpServletResponse>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                return send("cart-1");
+            }));
+        }
+        start.countDown();
+
+        List<MockHttpServletResponse> responses = new ArrayList<>();
+        try {
+            for (Future<MockHttpServletResponse> f : futures) responses.add(f.get(30, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(handled).hasValue(1);
+        for (MockHttpServletResponse r : responses) {
+            assertThat(r.getStatus()).isEqualTo(201);
+            assertThat(r.getContentAsString()).isEqualTo("{\"run\":1,\"echo\":\"cart-1\"}");
+        }
+        assertThat(responses).filteredOn(r -> "true".equals(r.getHeader("Idempotent-Replayed"))).hasSize(THREADS - 1);
+
+        // Later retries are replayed from the stored result
+        MockHttpServletResponse retry = send("cart-1");
+        assertThat(retry.getContentAsString()).isEqualTo("{\"run\":1,\"echo\":\"cart-1\"}");
+        assertThat(handled).hasValue(1);
+    }
+
+    @Test
+    void reusedKeyWithDifferentBodyIsRejected() throws Exception {
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<MockHttpServletResponse> first = pool.submit(() -> send("cart-1"));
+            // While the first request is in flight...
+            while (!Boolean.TRUE.equals(redis.hasKey(redisKey()))) Thread.sleep(5);
+            assertThat(send("cart-2").getStatus()).isEqualTo(422);
+            assertThat(first.get(30, TimeUnit.SECONDS).getStatus()).isEqualTo(201);
+        } finally {
+            pool.shutdownNow();
+        }
+        // ...and once its result is stored
+        MockHttpServletResponse other = send("cart-2");
+        assertThat(other.getStatus()).isEqualTo(422);
+        assertThat(other.getHeader("Idempotent-Replayed")).isNull();
+        assertThat(handled).hasValue(1);
+    }
+
+    private MockHttpServletResponse send(String body) throws Exception {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(userId.toString(), null, List.of()));
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", PATH);
+        request.addHeader(IdempotencyFilter.HEADER, key);
+        request.setContentType("text/plain");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, handler);
+        return response;
+    }
+
+    private String redisKey() {
+        return "idem:" + PATH + ":" + userId + ":" + key;
+    }
+}
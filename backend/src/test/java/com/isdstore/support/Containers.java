@@ -0,0 +1,65 @@
+package com.isdstore.support;
+
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.MountableFile;
+
+import javax.sql.DataSource;
+
+/**
+ * Postgres and Redis shared by the integration tests, started on first use and kept for the whole run.
+ * Same images as docker-compose.yml; Postgres runs db/init on startup, so tests see the real schema
+ * and seed data and must create the rows they assert on. Test classes using them are annotated
+ * {@code @Testcontainers(disabledWithoutDocker = true)}.
+ */
+public final class Containers {
+
+    private static final class Postgres {
+        static final PostgreSQLContainer<?> INSTANCE = new PostgreSQLContainer<>("postgres:16-alpine")
+                .withDatabaseName("isdstore")
+                .withCopyFileToContainer(MountableFile.forHostPath("../db/init"), "/docker-entrypoint-initdb.d/");
+
+        static {
+            INSTANCE.start();
+        }
+    }
+
+    private static final class Redis {
+        static final GenericContainer<?> INSTANCE = new GenericContainer<>("redis:7-alpine").withExposedPorts(6379);
+
+        static {
+            INSTANCE.start();
+        }
+    }
+
+    private Containers() {
+    }
+
+    public static void postgres(DynamicPropertyRegistry registry) {
+        PostgreSQLContainer<?> pg = Postgres.INSTANCE;
+        registry.add("spring.datasource.url", pg::getJdbcUrl);
+        registry.add("spring.datasource.username", pg::getUsername);
+        registry.add("spring.datasource.password", pg::getPassword);
+    }
+
+    public static void redis(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.redis.host", Redis.INSTANCE::getHost);
+        registry.add("spring.data.redis.port", () -> Redis.INSTANCE.getMappedPort(6379));
+    }
+
+    public static DataSource dataSource() {
+        PostgreSQLContainer<?> pg = Postgres.INSTANCE;
+        return new DriverManagerDataSource(pg.getJdbcUrl(), pg.getUsername(), pg.getPassword());
+    }
+
+    public static StringRedisTemplate redisTemplate() {
+        LettuceConnectionFactory factory = new LettuceConnectionFactory(Redis.INSTANCE.getHost(), Redis.INSTANCE.getMappedPort(6379));
+        factory.afterPropertiesSet();
+        factory.start();
+        return new StringRedisTemplate(factory);
+    }
+}
@@ -0,0 +1,94 @@
+package com.isdstore.bench;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.isdstore.bench.support.Fixtures;
+import com.isdstore.bench.support.InMemoryRedis;
+import com.isdstore.cart.CartPersistence;
+import com.isdstore.cart.CartService;
+import com.isdstore.common.dto.CartItemDTO;
+import com.isdstore.common.dto.CartViewDTO;
+import com.isdstore.common.entity.Product;
+import com.isdstore.products.ProductCatalogCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cart read and update paths for carts of increasing size: decoding the Redis hash reply,
+ * pricing against the catalog cache and building the view. The legacy JSON benchmarks
+ * measure the Jackson (de)serialization cost of the same cart in its list form.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CartServiceBenchmark {
+
+    @Param({"1", "10", "30", "100"})
+    public int lines;
+
+    private CartService cartService;
+    private UUID userId;
+    private UUID firstProductId;
+    private ObjectMapper objectMapper;
+    private List<CartItemDTO> items;
+    private String itemsJson;
+
+    @Setup
+    public void setup() throws Exception {
+        List<Product> products = Fixtures.products(200);
+        InMemoryRedis redis = new InMemoryRedis();
+        ProductCatalogCache catalogCache = Fixtures.catalogCache(products, redis);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        // No JdbcTemplate: the benchmarked cart is always resident in Redis, so Postgres is never read
+        CartPersistence cartPersistence = new CartPersistence(redis, null, registry, 500, 5000, 60);
+        cartService = new CartService(redis, catalogCache, cartPersistence, registry);
+        userId = UUID.randomUUID();
+        firstProductId = products.get(0).getId();
+
+        Map<String, String> hash = new LinkedHashMap<>();
+        items = new ArrayList<>();
+        for (int i = 0; i < lines; i++) {
+            hash.put(products.get(i).getId().toString(), "2");
+            CartItemDTO it = new CartItemDTO();
+            it.setProductId(products.get(i).getId());
+            it.setQuantity(2);
+            items.add(it);
+        }
+        redis.putHash("cart:" + userId, hash);
+        objectMapper = new ObjectMapper();
+        itemsJson = objectMapper.writeValueAsString(items);
+        // Warm the catalog cache so the benchmark measures the steady state
+        cartService.getCartView(userId);
+    }
+
+    @Benchmark
+    public CartViewDTO getCartView() {
+        return cartService.getCartView(userId);
+    }
+
+    @Benchmark
+    public CartViewDTO addItem() {
+        // Increments an existing line, so the cart size stays constant across invocations
+        return cartService.addItem(userId, firstProductId, 1);
+    }
+
+    @Benchmark
+    public String writeLegacyJson() throws Exception {
+        return objectMapper.writeValueAsString(items);
+    }
+
+    @Benchmark
+    public List<CartItemDTO> readLegacyJson() throws Exception {
+        return objectMapper.readValue(itemsJson, new TypeReference<List<CartItemDTO>>() {});
+    }
+}
@@ -0,0 +1,64 @@
+package com.isdstore.bench;
+
+import com.isdstore.bench.support.Fixtures;
+import com.isdstore.bench.support.InMemoryRedis;
+import com.isdstore.security.AccessTokenCache;
+import com.isdstore.security.JwtAuthFilter;
+import com.isdstore.security.JwtService;
+import com.isdstore.security.TokenService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JwtAuthFilter end to end for an authenticated request. tokenCache=false sets the cache
+ * TTL to zero, so every request pays signature verification and the allow-list lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtAuthFilterBenchmark {
+
+    @Param({"true", "false"})
+    public boolean tokenCache;
+
+    private JwtAuthFilter filter;
+    private String authorization;
+
+    @Setup
+    public void setup() {
+        InMemoryRedis redis = new InMemoryRedis();
+        JwtService jwtService = new JwtService(Fixtures.JWT_SECRET, 900, 604800);
+        AccessTokenCache cache = new AccessTokenCache(redis, new RedisMessageListenerContainer(), 50_000, tokenCache ? 60 : 0);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        TokenService tokenService = new TokenService(redis, cache, registry);
+        filter = new JwtAuthFilter(jwtService, tokenService, cache, registry);
+
+        UUID userId = UUID.randomUUID();
+        String jti = jwtService.newTokenId();
+        String token = jwtService.generateAccessToken(userId, "user", jti);
+        redis.addKey("auth:jti:" + jti);
+        authorization = "Bearer " + token;
+    }
+
+    @Benchmark
+    public void authenticate(Blackhole bh) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/cart");
+        request.addHeader(HttpHeaders.AUTHORIZATION, authorization);
+        FilterChain chain = (req, res) -> bh.consume(SecurityContextHolder.getContext().getAuthentication());
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+        SecurityContextHolder.clearContext();
+    }
+}
@@ -0,0 +1,39 @@
+package com.isdstore.bench;
+
+import com.isdstore.bench.support.Fixtures;
+import com.isdstore.security.JwtService;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtServiceBenchmark {
+
+    private JwtService jwtService;
+    private UUID userId;
+    private String token;
+
+    @Setup
+    public void setup() {
+        jwtService = new JwtService(Fixtures.JWT_SECRET, 900, 604800);
+        userId = UUID.randomUUID();
+        token = jwtService.generateAccessToken(userId, "user", jwtService.newTokenId());
+    }
+
+    @Benchmark
+    public String generateAccessToken() {
+        return jwtService.generateAccessToken(userId, "user", jwtService.newTokenId());
+    }
+
+    @Benchmark
+    public Claims parseToken() {
+        return jwtService.parseToken(token);
+    }
+}
@@ -0,0 +1,80 @@
+package com.isdstore.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.isdstore.bench.support.Fixtures;
+import com.isdstore.bench.support.InMemoryRedis;
+import com.isdstore.common.dto.OrderDTO;
+import com.isdstore.common.dto.OrderItemDTO;
+import com.isdstore.common.entity.Order;
+import com.isdstore.common.entity.Product;
+import com.isdstore.common.entity.User;
+import com.isdstore.orders.OrderViewMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering a page of orders (what OrderController returns for order history).
+ * snapshot=false renders legacy orders whose lines need a title lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderViewMapperBenchmark {
+
+    @Param({"50", "500"})
+    public int orders;
+
+    @Param({"true", "false"})
+    public boolean snapshot;
+
+    private OrderViewMapper mapper;
+    private List<Order> page;
+
+    @Setup
+    public void setup() throws Exception {
+        List<Product> products = Fixtures.products(200);
+        mapper = new OrderViewMapper(Fixtures.catalogCache(products, new InMemoryRedis()));
+        ObjectMapper objectMapper = new ObjectMapper();
+        User user = new User();
+        user.setId(UUID.randomUUID());
+        user.setEmail("bench@example.com");
+
+        page = new ArrayList<>(orders);
+        for (int i = 0; i < orders; i++) {
+            List<OrderItemDTO> items = new ArrayList<>();
+            for (int j = 0; j < 3; j++) {
+                Product p = products.get((i * 3 + j) % products.size());
+                OrderItemDTO it = new OrderItemDTO();
+                it.setProductId(p.getId());
+                it.setQuantity(1 + j);
+                if (snapshot) {
+                    it.setTitle(p.getTitle());
+                    it.setUnitPriceCents(p.getPriceCents());
+                }
+                items.add(it);
+            }
+            Order o = new Order();
+            o.setId(UUID.randomUUID());
+            o.setUser(user);
+            o.setItems(objectMapper.writeValueAsString(items));
+            o.setTotalCents(12345);
+            o.setStatus("completed");
+            o.setCreatedAt(Instant.now());
+            page.add(o);
+        }
+        mapper.toDtos(page);
+    }
+
+    @Benchmark
+    public List<OrderDTO> toDtos() {
+        return mapper.toDtos(page);
+    }
+}
@@ -0,0 +1,58 @@
+package com.isdstore.bench;
+
+import com.isdstore.bench.support.Fixtures;
+import com.isdstore.bench.support.InMemoryRedis;
+import com.isdstore.common.dto.ProductSuggestionDTO;
+import com.isdstore.products.ProductSearchIndex;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ProductSearchIndex suggestions over a generated catalog (what GET /api/products/suggest serves),
+ * from short, broad prefixes to multi-word queries. Setup prints build time and the heap retained by the index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ProductSearchBenchmark {
+
+    @Param({"500000"})
+    public int products;
+
+    @Param({"ch", "gaming", "gaming ch", "wireless headphones bl", "acme ergonomic chair", "zzz"})
+    public String query;
+
+    private ProductSearchIndex index;
+
+    @Setup
+    public void setup() {
+        long before = usedHeapAfterGc();
+        long start = System.nanoTime();
+        index = new ProductSearchIndex(Fixtures.generatedCatalog(products), new InMemoryRedis(),
+                new RedisMessageListenerContainer(), 1000, 50);
+        index.rebuild();
+        long buildMillis = (System.nanoTime() - start) / 1_000_000;
+        long retained = usedHeapAfterGc() - before;
+        System.out.printf("%nIndex: %s, built in %d ms, ~%d MB retained%n",
+                index.stats(), buildMillis, retained / (1024 * 1024));
+    }
+
+    private static long usedHeapAfterGc() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    @Benchmark
+    public List<ProductSuggestionDTO> suggest() {
+        return index.suggest(query, 8);
+    }
+}
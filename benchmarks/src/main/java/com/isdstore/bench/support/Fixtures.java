@@ -0,0 +1,151 @@
+package com.isdstore.bench.support;
+
+import com.isdstore.common.entity.Product;
+import com.isdstore.common.repo.ProductRepository;
+import com.isdstore.products.ProductCatalogCache;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.lang.reflect.Proxy;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * Generated catalog data and in-memory replacements for the Spring beans the benchmarks need.
+ */
+public final class Fixtures {
+    public static final String JWT_SECRET = "benchmark-secret-benchmark-secret-benchmark";
+
+    private Fixtures() {
+    }
+
+    public static List<Product> products(int n) {
+        List<Product> products = new ArrayList<>(n);
+        Instant now = Instant.now();
+        for (int i = 0; i < n; i++) {
+            Product p = new Product();
+            p.setId(UUID.randomUUID());
+            p.setTitle("Product " + i);
+            p.setDescription("Generated product number " + i + " for benchmarks.");
+            p.setPriceCents(1000 + i);
+            p.setImage("https://placehold.co/600x450/png?text=" + i);
+            p.setStock(1_000_000);
+            p.setCreatedAt(now.minusSeconds(i));
+            products.add(p);
+        }
+        return products;
+    }
+
+    /**
+     * ProductRepository backed by a map; only the lookup methods used on the hot paths are supported.
+     */
+    @SuppressWarnings("unchecked")
+    public static ProductRepository productRepository(List<Product> products) {
+        Map<UUID, Product> byId = new LinkedHashMap<>();
+        products.forEach(p -> byId.put(p.getId(), p));
+        return (ProductRepository) Proxy.newProxyInstance(
+                ProductRepository.class.getClassLoader(),
+                new Class<?>[]{ProductRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "findById" -> Optional.ofNullable(byId.get((UUID) args[0]));
+                    case "existsById" -> byId.containsKey((UUID) args[0]);
+                    case "findAll" -> new ArrayList<>(byId.values());
+                    case "findAllById" -> {
+                        List<Product> found = new ArrayList<>();
+                        for (UUID id : (Iterable<UUID>) args[0]) {
+                            Product p = byId.get(id);
+                            if (p != null) found.add(p);
+                        }
+                        yield found;
+                    }
+                    case "toString" -> "InMemoryProductRepository";
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static final String[] BRANDS = {
+            "Acme", "Nordic", "Vertex", "Lumen", "Orion", "Kappa", "Zenith", "Atlas", "Nimbus", "Helix",
+            "Polar", "Quartz", "Sable", "Titan", "Umbra", "Vega", "Wren", "Yarrow", "Cobalt", "Delta",
+            "Ember", "Fjord", "Garnet", "Harbor", "Iris", "Juniper", "Kestrel", "Larch", "Mistral", "Onyx"};
+    private static final String[] ADJECTIVES = {
+            "Ergonomic", "Wireless", "Compact", "Portable", "Premium", "Classic", "Smart", "Rugged", "Slim", "Silent",
+            "Gaming", "Vintage", "Modular", "Foldable", "Adjustable", "Waterproof", "Heated", "Magnetic", "Solar", "Digital",
+            "Mechanical", "Ceramic", "Wooden", "Leather", "Steel", "Bamboo", "Cotton", "Carbon", "Organic", "Deluxe"};
+    private static final String[] NOUNS = {
+            "Chair", "Desk", "Headphones", "Keyboard", "Mouse", "Monitor", "Lamp", "Backpack", "Bottle", "Speaker",
+            "Charger", "Camera", "Tripod", "Watch", "Jacket", "Sneakers", "Kettle", "Blender", "Toaster", "Mug",
+            "Notebook", "Pen", "Router", "Drone", "Tablet", "Stand", "Cushion", "Blanket", "Pillow", "Umbrella",
+            "Wallet", "Belt", "Helmet", "Gloves", "Scarf", "Tent", "Stove", "Cooler", "Grill", "Shelf",
+            "Microphone", "Webcam", "Projector", "Printer", "Scanner", "Console", "Controller", "Earbuds", "Drive", "Hub"};
+    private static final String[] WORDS = {
+            "durable", "lightweight", "design", "comfort", "everyday", "travel", "office", "home", "outdoor", "battery",
+            "fast", "charging", "premium", "materials", "easy", "clean", "warranty", "support", "quality", "build",
+            "noise", "cancelling", "bluetooth", "usb", "adjustable", "height", "lumbar", "soft", "grip", "finish",
+            "stainless", "steel", "recycled", "fabric", "water", "resistant", "energy", "efficient", "quiet", "powerful",
+            "compact", "storage", "modern", "style", "gift", "ideal", "professional", "beginner", "kids", "family",
+            "sport", "gaming", "streaming", "music", "coffee", "kitchen", "garden", "camping", "hiking", "cycling"};
+
+    /**
+     * ProductRepository over a deterministic, generated catalog of {@code n} products; pages are produced on
+     * demand, so the repository itself retains nothing. Supports the keyset page queries used by index builds.
+     */
+    public static ProductRepository generatedCatalog(int n) {
+        Instant base = Instant.parse("2025-01-01T00:00:00Z");
+        return (ProductRepository) Proxy.newProxyInstance(
+                ProductRepository.class.getClassLoader(),
+                new Class<?>[]{ProductRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "findPage" -> generatedPage(base, 0, n, (int) args[0]);
+                    case "findPageAfter" -> generatedPage(base,
+                            (int) (base.toEpochMilli() - ((Instant) args[0]).toEpochMilli()) + 1, n, (int) args[2]);
+                    case "findAllById" -> new ArrayList<Product>();
+                    case "toString" -> "GeneratedProductRepository";
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static List<Product> generatedPage(Instant base, int from, int n, int limit) {
+        List<Product> page = new ArrayList<>(limit);
+        for (int i = from; i < Math.min(n, from + limit); i++) {
+            page.add(generatedProduct(base, i));
+        }
+        return page;
+    }
+
+    // Product i is created i ms before base, so the newest-first keyset order is simply i ascending
+    private static Product generatedProduct(Instant base, int i) {
+        SplittableRandom random = new SplittableRandom(i);
+        Product p = new Product();
+        p.setId(new UUID(0L, i));
+        p.setTitle(BRANDS[random.nextInt(BRANDS.length)] + " " + ADJECTIVES[random.nextInt(ADJECTIVES.length)] + " "
+                + NOUNS[random.nextInt(NOUNS.length)] + " " + (char) ('A' + random.nextInt(26)) + random.nextInt(1000));
+        StringBuilder description = new StringBuilder();
+        for (int w = 0; w < 12; w++) {
+            if (w > 0) description.append(' ');
+            description.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        p.setDescription(description.toString());
+        p.setPriceCents(500 + random.nextInt(100_000));
+        p.setStock(random.nextInt(100));
+        p.setCreatedAt(base.minusMillis(i));
+        return p;
+    }
+
+    public static ProductCatalogCache catalogCache(List<Product> products, InMemoryRedis redis) {
+        return new ProductCatalogCache(productRepository(products), redis, new RedisMessageListenerContainer(), 100_000, 3600);
+    }
+
+    public static Collection<UUID> ids(List<Product> products) {
+        return products.stream().map(Product::getId).toList();
+    }
+}
@@ -0,0 +1,66 @@
+package com.isdstore.bench.support;
+
+import com.isdstore.cart.BenchCartScripts;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * StringRedisTemplate stand-in backed by maps, covering the calls made on the benchmarked paths:
+ * the cart ADD, REMOVE and READ scripts (matched by identity), key existence and deletes.
+ * Pub/sub messages are dropped. Not a Redis emulator: extend it when a benchmark needs more.
+ */
+public class InMemoryRedis extends StringRedisTemplate {
+    private final Map<String, Map<String, String>> hashes = new ConcurrentHashMap<>();
+    private final Set<String> keys = ConcurrentHashMap.newKeySet();
+
+    public void addKey(String key) {
+        keys.add(key);
+    }
+
+    public void putHash(String key, Map<String, String> values) {
+        hashes.put(key, new LinkedHashMap<>(values));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T execute(RedisScript<T> script, List<String> scriptKeys, Object... args) {
+        Map<String, String> hash = hashes.computeIfAbsent(scriptKeys.get(0), k -> new LinkedHashMap<>());
+        synchronized (hash) {
+            if (script == BenchCartScripts.REMOVE) {
+                hash.remove(args[0].toString());
+            } else if (script == BenchCartScripts.ADD) {
+                hash.merge(args[0].toString(), args[1].toString(), (a, b) -> String.valueOf(Long.parseLong(a) + Long.parseLong(b)));
+            } else if (script != BenchCartScripts.READ) {
+                throw new UnsupportedOperationException("Script not emulated: " + script.getSha1());
+            }
+            List<Object> reply = new ArrayList<>(hash.size() * 2);
+            hash.forEach((f, v) -> {
+                reply.add(f);
+                reply.add(v);
+            });
+            return (T) reply;
+        }
+    }
+
+    @Override
+    public Boolean hasKey(String key) {
+        return keys.contains(key) || hashes.containsKey(key);
+    }
+
+    @Override
+    public Boolean delete(String key) {
+        return keys.remove(key) | hashes.remove(key) != null;
+    }
+
+    @Override
+    public Long convertAndSend(String channel, Object message) {
+        return 0L;
+    }
+}
@@ -0,0 +1,16 @@
+package com.isdstore.cart;
+
+import org.springframework.data.redis.core.script.RedisScript;
+
+/**
+ * Public handles on the package-private {@link CartScripts}, so the benchmark Redis stand-in can
+ * recognise each script by identity rather than by its Lua source.
+ */
+public final class BenchCartScripts {
+    public static final RedisScript<?> ADD = CartScripts.ADD;
+    public static final RedisScript<?> REMOVE = CartScripts.REMOVE;
+    public static final RedisScript<?> READ = CartScripts.READ;
+
+    private BenchCartScripts() {
+    }
+}
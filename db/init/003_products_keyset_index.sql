@@ -0,0 +1,5 @@
+-- Keyset pagination for GET /api/products orders by (created_at, id).
+-- The composite index supersedes idx_products_created_at for that access path.
+-- Idempotent: can also be applied to an existing database.
+CREATE INDEX IF NOT EXISTS idx_products_created_at_id ON products (created_at DESC, id DESC);
+DROP INDEX IF EXISTS idx_products_created_at;
@@ -0,0 +1,7 @@
+-- Last-modified timestamp for products, used for catalog ETag/Last-Modified.
+-- The trigger also covers the stock decrements issued by checkout through plain JDBC.
+-- Idempotent: can also be applied to an existing database.
+ALTER TABLE products ADD COLUMN IF NOT EXISTS updated_at TIMESTAMPTZ NOT NULL DEFAULT NOW();
+
+DROP TRIGGER IF EXISTS trg_products_updated ON products;
+CREATE TRIGGER trg_products_updated BEFORE UPDATE ON products FOR EACH ROW EXECUTE PROCEDURE set_updated_at();
@@ -0,0 +1,10 @@
+-- One persisted cart per user: required by the write-behind upsert (ON CONFLICT (user_id)).
+-- Keeps the most recently updated row if duplicates exist.
+-- Idempotent: can also be applied to an existing database.
+DELETE FROM carts c
+USING carts newer
+WHERE c.user_id = newer.user_id
+  AND (c.updated_at, c.id) < (newer.updated_at, newer.id);
+
+CREATE UNIQUE INDEX IF NOT EXISTS ux_carts_user_id ON carts (user_id);
+DROP INDEX IF EXISTS idx_carts_user_id;
@@ -0,0 +1,18 @@
+-- Transactional outbox: events are inserted in the same transaction as the change they describe
+-- and dispatched asynchronously by OutboxDispatcher (claimed with FOR UPDATE SKIP LOCKED).
+-- available_at doubles as claim lease and retry backoff; 'infinity' parks an event after maxAttempts.
+-- Idempotent: can also be applied to an existing database.
+CREATE TABLE IF NOT EXISTS outbox (
+    id BIGSERIAL PRIMARY KEY,
+    event_type TEXT NOT NULL,
+    aggregate_id UUID,
+    payload JSONB NOT NULL,
+    attempts INTEGER NOT NULL DEFAULT 0,
+    available_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    last_error TEXT,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    processed_at TIMESTAMPTZ
+);
+
+CREATE INDEX IF NOT EXISTS idx_outbox_pending ON outbox (available_at, id) WHERE processed_at IS NULL;
+CREATE INDEX IF NOT EXISTS idx_outbox_processed_at ON outbox (processed_at) WHERE processed_at IS NOT NULL;
@@ -0,0 +1,21 @@
+-- Hot-inventory mode (flash sales): flagged products reserve stock from Redis counters.
+-- stock_reservations is the ledger of committed hot reservations, written in the checkout
+-- transaction and folded into products.stock in batches by HotStockService.reconcile();
+-- reconciled rows are kept for a while so abandoned holds can still be matched by hold_id.
+-- Idempotent: can also be applied to an existing database.
+ALTER TABLE products ADD COLUMN IF NOT EXISTS hot_stock BOOLEAN NOT NULL DEFAULT FALSE;
+
+CREATE TABLE IF NOT EXISTS stock_reservations (
+    id BIGSERIAL PRIMARY KEY,
+    hold_id TEXT NOT NULL,
+    product_id UUID NOT NULL,
+    quantity INTEGER NOT NULL CHECK (quantity > 0),
+    created_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    reconciled_at TIMESTAMPTZ
+);
+
+CREATE INDEX IF NOT EXISTS idx_stock_reservations_pending ON stock_reservations (id) WHERE reconciled_at IS NULL;
+-- Units still to be folded in, per product: subtracted by checkout and by counter seeding
+CREATE INDEX IF NOT EXISTS idx_stock_reservations_pending_product ON stock_reservations (product_id) WHERE reconciled_at IS NULL;
+CREATE INDEX IF NOT EXISTS idx_stock_reservations_hold ON stock_reservations (hold_id);
+CREATE INDEX IF NOT EXISTS idx_stock_reservations_reconciled_at ON stock_reservations (reconciled_at) WHERE reconciled_at IS NOT NULL;
@@ -0,0 +1,21 @@
+-- Time-ordered UUIDv7 defaults for the UUID primary keys (the application assigns v7 ids itself,
+-- see UuidV7Generator; this default covers rows inserted directly in SQL).
+-- uuid_generate_v7(): 48-bit Unix millis over the first 6 bytes of a random v4, with the version
+-- nibble turned from 4 (0100) into 7 (0111). Postgres 18 ships uuidv7() natively.
+-- Idempotent: can also be applied to an existing database (existing ids are left as they are).
+CREATE OR REPLACE FUNCTION uuid_generate_v7() RETURNS uuid AS $$
+  SELECT encode(
+    set_bit(
+      set_bit(
+        overlay(uuid_send(gen_random_uuid())
+                placing substring(int8send(floor(extract(epoch FROM clock_timestamp()) * 1000)::bigint) FROM 3)
+                FROM 1 FOR 6),
+        52, 1),
+      53, 1),
+    'hex')::uuid;
+$$ LANGUAGE sql VOLATILE;
+
+ALTER TABLE users ALTER COLUMN id SET DEFAULT uuid_generate_v7();
+ALTER TABLE products ALTER COLUMN id SET DEFAULT uuid_generate_v7();
+ALTER TABLE carts ALTER COLUMN id SET DEFAULT uuid_generate_v7();
+ALTER TABLE orders ALTER COLUMN id SET DEFAULT uuid_generate_v7();
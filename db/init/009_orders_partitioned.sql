@@ -0,0 +1,66 @@
+-- Monthly range partitions of orders on created_at (UTC months, named orders_pYYYYMM).
+-- Queries bounded by created_at only touch the matching partitions, and old months can be
+-- detached without a bulk DELETE (OrderPartitionMaintenance creates future months ahead of time
+-- and archives old ones). The primary key becomes (id, created_at): a partitioned table's unique
+-- constraints must include the partition key; ids stay unique in practice (UUIDv7, see 008).
+-- Idempotent: on an existing database the unpartitioned table is copied into the new layout in one
+-- transaction (it holds an exclusive lock on orders for the duration of the copy).
+
+-- Creates the partition holding the month of month_start if missing; returns its name
+CREATE OR REPLACE FUNCTION create_orders_partition(month_start DATE) RETURNS TEXT AS $$
+DECLARE
+  first_day DATE := date_trunc('month', month_start)::DATE;
+  partition_name TEXT := format('orders_p%s', to_char(first_day, 'YYYYMM'));
+BEGIN
+  IF to_regclass(partition_name) IS NULL THEN
+    EXECUTE format('CREATE TABLE %I PARTITION OF orders FOR VALUES FROM (%L) TO (%L)',
+                   partition_name,
+                   first_day::TIMESTAMP AT TIME ZONE 'UTC',
+                   (first_day + INTERVAL '1 month')::TIMESTAMP AT TIME ZONE 'UTC');
+  END IF;
+  RETURN partition_name;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Detached partitions are moved here by the retention job (dump or drop them from there)
+CREATE SCHEMA IF NOT EXISTS orders_archive;
+
+DO $$
+DECLARE
+  first_month DATE;
+  last_month DATE;
+BEGIN
+  IF (SELECT relkind FROM pg_class WHERE oid = 'orders'::regclass) = 'p' THEN
+    RETURN;
+  END IF;
+
+  LOCK TABLE orders IN ACCESS EXCLUSIVE MODE;
+  ALTER TABLE orders RENAME TO orders_unpartitioned;
+  ALTER INDEX orders_pkey RENAME TO orders_unpartitioned_pkey;
+  ALTER INDEX IF EXISTS idx_orders_user_id_created_at RENAME TO idx_orders_unpartitioned_user_id_created_at;
+
+  CREATE TABLE orders (
+      id UUID NOT NULL DEFAULT uuid_generate_v7(),
+      user_id UUID NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+      items JSONB NOT NULL,
+      total_cents INTEGER NOT NULL,
+      status TEXT NOT NULL DEFAULT 'completed',
+      created_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+      PRIMARY KEY (id, created_at)
+  ) PARTITION BY RANGE (created_at);
+  -- Same index as before, now created on every partition
+  CREATE INDEX idx_orders_user_id_created_at ON orders (user_id, created_at DESC);
+
+  SELECT date_trunc('month', COALESCE(MIN(created_at), NOW()) AT TIME ZONE 'UTC')::DATE,
+         date_trunc('month', GREATEST(COALESCE(MAX(created_at), NOW()), NOW()) AT TIME ZONE 'UTC')::DATE
+    INTO first_month, last_month
+    FROM orders_unpartitioned;
+  -- Every month with existing orders, plus three months ahead
+  PERFORM create_orders_partition(m::DATE)
+     FROM generate_series(first_month, last_month + INTERVAL '3 months', INTERVAL '1 month') AS m;
+
+  INSERT INTO orders (id, user_id, items, total_cents, status, created_at)
+  SELECT id, user_id, items, total_cents, status, created_at FROM orders_unpartitioned;
+  DROP TABLE orders_unpartitioned;
+END;
+$$;
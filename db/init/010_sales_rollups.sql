@@ -0,0 +1,24 @@
+-- Sales rollups for the admin dashboard, kept up to date from the order.created outbox event
+-- (SalesRollupService) so revenue and top-seller views never scan orders or parse items.
+-- Days are UTC calendar days of orders.created_at. sales_rollup_orders records which orders have
+-- been counted, which makes the at-least-once event delivery and re-running the backfill safe.
+-- Idempotent: can also be applied to an existing database (then run the backfill once).
+CREATE TABLE IF NOT EXISTS sales_daily (
+    day DATE PRIMARY KEY,
+    orders BIGINT NOT NULL DEFAULT 0,
+    units BIGINT NOT NULL DEFAULT 0,
+    revenue_cents BIGINT NOT NULL DEFAULT 0
+);
+
+CREATE TABLE IF NOT EXISTS sales_product_daily (
+    day DATE NOT NULL,
+    product_id UUID NOT NULL,
+    units BIGINT NOT NULL DEFAULT 0,
+    revenue_cents BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (day, product_id)
+);
+
+CREATE TABLE IF NOT EXISTS sales_rollup_orders (
+    order_id UUID PRIMARY KEY,
+    counted_at TIMESTAMPTZ NOT NULL DEFAULT NOW()
+);
@@ -17,26 +17,7 @@ import {
 } from "@/components/ui/drawer";
 import { Progress } from "@/components/ui/progress";
 import { getAccessToken, authJson, clearTokens } from "@/lib/auth";
-
-// Types aligned with backend CartViewDTO
-type ProductDTO = {
-  id: string;
-  title: string;
-  image?: string | null;
-  priceCents: number;
-  stock: number;
-};
-
-type CartViewItemDTO = {
-  product: ProductDTO;
-  quantity: number;
-  itemTotalCents: number;
-};
-
-type CartViewDTO = {
-  items: CartViewItemDTO[];
-  totalCents: number;
-};
+import type { CartViewDTO } from "@/lib/cart";
 
 async function fetchCart(): Promise<CartViewDTO> {
   console.log("CartPage: fetching /api/cart");
@@ -92,7 +73,8 @@ export default function CartPage() {
       setProgress(60);
       const res = await authJson<{ id: string; totalCents: number; createdAt: string }>(
         "/api/checkout",
-        { method: "POST" }
+        // Lets the backend deduplicate retries of this checkout attempt
+        { method: "POST", headers: { "Idempotency-Key": crypto.randomUUID() } }
       );
       setOrderId(res.id);
       setStatus("Finalizing…");
@@ -21,8 +21,17 @@ type OrderDTO = {
   createdAt: string; // ISO date string
 };
 
+type OrderPageDTO = {
+  items: OrderDTO[];
+  nextCursor?: string | null;
+};
+
 async function fetchOrders(isAdmin: boolean): Promise<OrderDTO[]> {
-  return await authJson<OrderDTO[]>(isAdmin ? "/api/admin/orders" : "/api/orders");
+  if (isAdmin) {
+    const page = await authJson<OrderPageDTO>("/api/admin/orders");
+    return page.items;
+  }
+  return await authJson<OrderDTO[]>("/api/orders");
 }
 
 export default function OrdersPage() {
@@ -9,11 +9,17 @@ type ProductDTO = {
   stock: number;
 };
 
+type ProductPageDTO = {
+  items: ProductDTO[];
+  nextCursor?: string | null;
+};
+
 async function getProducts(): Promise<ProductDTO[]> {
   const base = process.env.NEXT_PUBLIC_API_BASE_URL || "http://localhost:8080";
   const res = await fetch(`${base}/api/products`, { cache: "no-store" });
   if (!res.ok) throw new Error(`Failed to load products: ${res.status}`);
-  return res.json();
+  const page: ProductPageDTO = await res.json();
+  return page.items;
 }
 
 export default async function HomePage() {
@@ -4,6 +4,7 @@ import { useState } from "react";
 import { useRouter } from "next/navigation";
 import { Button } from "@/components/ui/button";
 import { authJson, getAccessToken } from "@/lib/auth";
+import type { CartViewDTO } from "@/lib/cart";
 import { toast } from "sonner";
 
 export function AddToCartButton({ productId, disabled }: { productId: string; disabled?: boolean }) {
@@ -19,12 +20,14 @@ export function AddToCartButton({ productId, disabled }: { productId: string; di
     }
     setLoading(true);
     try {
-      await authJson("/api/cart/items", {
+      // The response is the updated cart view, same shape as GET /api/cart
+      const cart = await authJson<CartViewDTO>("/api/cart/items", {
         method: "POST",
         body: { productId, quantity: 1 },
       });
+      const units = cart.items.reduce((sum, item) => sum + item.quantity, 0);
       toast.success("Added to cart", {
-        description: "The item was added to your cart.",
+        description: `Your cart now holds ${units} item${units === 1 ? "" : "s"}.`,
         action: {
           label: "View cart",
           onClick: () => router.push("/cart"),
@@ -2,7 +2,7 @@
 
 import Link from "next/link";
 import { useEffect, useMemo, useState } from "react";
-import { clearTokens, getAccessToken, getRoleFromAccessToken, getUserEmail } from "@/lib/auth";
+import { authFetch, clearTokens, getAccessToken, getRoleFromAccessToken, getUserEmail, loadTokens } from "@/lib/auth";
 import { useRouter } from "next/navigation";
 
 export function SiteHeader() {
@@ -24,6 +24,15 @@ export function SiteHeader() {
   }, []);
 
   function onLogout() {
+    const tokens = loadTokens();
+    if (tokens) {
+      // Best effort: revoke both tokens server-side, local state is cleared regardless
+      authFetch("/api/auth/logout", {
+        method: "POST",
+        headers: { "Content-Type": "application/json" },
+        body: JSON.stringify({ refreshToken: tokens.refreshToken }),
+      }).catch(() => {});
+    }
     clearTokens();
     setToken(null);
     setRole(null);
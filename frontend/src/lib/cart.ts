@@ -0,0 +1,19 @@
+// Types aligned with backend CartViewDTO, returned by GET /api/cart and by the cart item endpoints
+export type CartProductDTO = {
+  id: string;
+  title: string;
+  image?: string | null;
+  priceCents: number;
+  stock: number;
+};
+
+export type CartViewItemDTO = {
+  product: CartProductDTO;
+  quantity: number;
+  itemTotalCents: number;
+};
+
+export type CartViewDTO = {
+  items: CartViewItemDTO[];
+  totalCents: number;
+};
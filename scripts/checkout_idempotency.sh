@@ -0,0 +1,52 @@
+#!/usr/bin/env bash
+
+# scripts/checkout_idempotency.sh
+# Fires PARALLEL concurrent POST /api/checkout requests sharing one Idempotency-Key and
+# checks that exactly one order was created: every response should carry the same order id,
+# all but one with the "Idempotent-Replayed: true" header.
+# Requires: curl, jq. Start the backend with RATE_LIMIT_ENABLED=false if PARALLEL exceeds the checkout limit.
+#
+# Usage:
+#   scripts/checkout_idempotency.sh
+#
+# Configuration via env vars:
+#   API (default: http://localhost:8080)
+#   PARALLEL (default: 10)
+
+set -euo pipefail
+
+API="${API:-http://localhost:8080}"
+PARALLEL="${PARALLEL:-10}"
+
+for bin in curl jq; do
+    if ! command -v "$bin" >/dev/null 2>&1; then
+        echo "Error: $bin is not installed or not in PATH." >&2
+        exit 1
+    fi
+done
+
+email="idem-$(date +%s%N)@example.com" password="load-test-password"
+curl -fsS -o /dev/null -H 'Content-Type: application/json' \
+    -d "{\"email\":\"$email\",\"password\":\"$password\"}" "$API/api/auth/register"
+token=$(curl -fsS -H 'Content-Type: application/json' \
+    -d "{\"email\":\"$email\",\"password\":\"$password\"}" "$API/api/auth/login" | jq -r .accessToken)
+product=$(curl -fsS "$API/api/products?size=100" | jq -r '.items | max_by(.stock) | .id')
+curl -fsS -o /dev/null -H "Authorization: Bearer $token" -H 'Content-Type: application/json' \
+    -d "{\"productId\":\"$product\",\"quantity\":1}" "$API/api/cart/items"
+
+key=$(cat /proc/sys/kernel/random/uuid 2>/dev/null || uuidgen)
+out=$(mktemp -d)
+trap 'rm -rf "$out"' EXIT
+for i in $(seq 1 "$PARALLEL"); do
+    curl -sS -o "$out/body.$i" -D "$out/headers.$i" -X POST \
+        -H "Authorization: Bearer $token" -H "Idempotency-Key: $key" "$API/api/checkout" &
+done
+wait
+
+echo "== Status codes"
+grep -h '^HTTP/' "$out"/headers.* | awk '{print $2}' | sort | uniq -c
+echo "== Replayed responses: $(grep -il '^idempotent-replayed: true' "$out"/headers.* | wc -l)"
+echo "== Distinct order ids (expect 1)"
+cat "$out"/body.* | jq -r '.id? // empty' 2>/dev/null | sort -u
+echo "== Orders for this user (expect 1)"
+curl -fsS -H "Authorization: Bearer $token" "$API/api/orders" | jq length
@@ -0,0 +1,82 @@
+#!/usr/bin/env bash
+
+# scripts/load_cart_checkout.sh
+# Load benchmark for the cart and checkout endpoints, used to compare the
+# platform-thread and virtual-thread execution modes of the backend.
+# Requires: curl, jq, hey (https://github.com/rakyll/hey).
+#
+# Usage:
+#   1) docker-compose up -d db redis
+#   2) start the backend in the mode under test:
+#        VIRTUAL_THREADS=false mvn spring-boot:run   (platform threads)
+#        VIRTUAL_THREADS=true  mvn spring-boot:run   (virtual threads, Java 21+)
+#   3) scripts/load_cart_checkout.sh > results-<mode>.txt
+#
+# Start the backend with RATE_LIMIT_ENABLED=false, otherwise the per-IP limits
+# turn most of the load into 429 responses.
+#
+# Configuration via env vars:
+#   API (default: http://localhost:8080)
+#   CONCURRENCY (default: 200)  concurrent clients
+#   REQUESTS (default: 20000)   requests per cart scenario
+#   CHECKOUTS (default: 500)    checkout requests (each preceded by a cart add)
+
+set -euo pipefail
+
+API="${API:-http://localhost:8080}"
+CONCURRENCY="${CONCURRENCY:-200}"
+REQUESTS="${REQUESTS:-20000}"
+CHECKOUTS="${CHECKOUTS:-500}"
+
+for bin in curl jq hey; do
+    if ! command -v "$bin" >/dev/null 2>&1; then
+        echo "Error: $bin is not installed or not in PATH." >&2
+        exit 1
+    fi
+done
+
+login_new_user() {
+    local email="load-$(date +%s%N)-$RANDOM@example.com" password="load-test-password"
+    curl -fsS -o /dev/null -H 'Content-Type: application/json' \
+        -d "{\"email\":\"$email\",\"password\":\"$password\"}" "$API/api/auth/register"
+    curl -fsS -H 'Content-Type: application/json' \
+        -d "{\"email\":\"$email\",\"password\":\"$password\"}" "$API/api/auth/login" | jq -r .accessToken
+}
+
+# Prints "<percentile> <seconds>" lines from a list of curl time_total values on stdin
+percentiles() {
+    sort -n | awk '{ v[NR] = $1 } END {
+        if (NR == 0) exit;
+        split("50 90 99", ps, " ");
+        for (i = 1; i <= 3; i++) { idx = int(NR * ps[i] / 100); if (idx < 1) idx = 1; printf "p%s %.4fs\n", ps[i], v[idx] }
+        printf "n %d\n", NR
+    }'
+}
+
+token=$(login_new_user)
+# Highest-stock seeded product, so checkouts keep succeeding for the whole run
+product=$(curl -fsS "$API/api/products?size=100" | jq -r '.items | max_by(.stock) | .id')
+
+echo "== GET /api/cart (n=$REQUESTS c=$CONCURRENCY)"
+hey -n "$REQUESTS" -c "$CONCURRENCY" -H "Authorization: Bearer $token" "$API/api/cart"
+
+echo "== POST /api/cart/items (n=$REQUESTS c=$CONCURRENCY)"
+hey -n "$REQUESTS" -c "$CONCURRENCY" -m POST -T application/json \
+    -H "Authorization: Bearer $token" \
+    -d "{\"productId\":\"$product\",\"quantity\":1}" "$API/api/cart/items"
+
+# Checkout empties the cart, so every checkout needs its own add first and each
+# concurrent worker needs its own user. Only the checkout call is timed.
+echo "== POST /api/checkout (n=$CHECKOUTS c=$CONCURRENCY, one user per worker)"
+tokens_file=$(mktemp)
+trap 'rm -f "$tokens_file"' EXIT
+for _ in $(seq 1 "$CONCURRENCY"); do login_new_user >> "$tokens_file"; done
+
+export API product
+seq 1 "$CHECKOUTS" | awk -v c="$CONCURRENCY" '{ print ($1 - 1) % c + 1 }' \
+    | xargs -P "$CONCURRENCY" -I{} sh -c '
+        t=$(sed -n "{}p" "$0")
+        curl -fsS -o /dev/null -H "Authorization: Bearer $t" -H "Content-Type: application/json" \
+            -d "{\"productId\":\"$product\",\"quantity\":1}" "$API/api/cart/items"
+        curl -sS -o /dev/null -w "%{time_total}\n" -X POST -H "Authorization: Bearer $t" "$API/api/checkout"
+    ' "$tokens_file" | percentiles
@@ -0,0 +1,61 @@
+#!/usr/bin/env bash
+
+# scripts/load_login_burst.sh
+# Checks that a burst of logins does not starve catalog requests: measures
+# GET /api/products latency alone, then again while hammering /api/auth/login.
+# With the bounded BCrypt pool, excess logins get 503 + Retry-After instead of
+# queueing for a hashing thread; compare the catalog p99 of the two phases and
+# the number of 503s in the login summary. Run the load generator on another
+# machine than the backend, otherwise both compete for the same cores.
+# Requires: curl, hey (https://github.com/rakyll/hey).
+#
+# Usage:
+#   1) docker-compose up -d db redis
+#   2) mvn spring-boot:run   (optionally BCRYPT_THREADS / BCRYPT_QUEUE / BCRYPT_STRENGTH)
+#   3) scripts/load_login_burst.sh
+#
+# Start the backend with RATE_LIMIT_ENABLED=false, otherwise the per-IP limits
+# turn most of the load into 429 responses.
+#
+# Configuration via env vars:
+#   API (default: http://localhost:8080)
+#   CATALOG_REQUESTS (default: 5000)   catalog requests per phase
+#   CATALOG_CONCURRENCY (default: 50)
+#   LOGIN_REQUESTS (default: 5000)     logins fired during the burst phase
+#   LOGIN_CONCURRENCY (default: 200)
+
+set -euo pipefail
+
+API="${API:-http://localhost:8080}"
+CATALOG_REQUESTS="${CATALOG_REQUESTS:-5000}"
+CATALOG_CONCURRENCY="${CATALOG_CONCURRENCY:-50}"
+LOGIN_REQUESTS="${LOGIN_REQUESTS:-5000}"
+LOGIN_CONCURRENCY="${LOGIN_CONCURRENCY:-200}"
+
+for bin in curl hey; do
+    if ! command -v "$bin" >/dev/null 2>&1; then
+        echo "Error: $bin is not installed or not in PATH." >&2
+        exit 1
+    fi
+done
+
+email="burst-$(date +%s%N)@example.com" password="load-test-password"
+body="{\"email\":\"$email\",\"password\":\"$password\"}"
+curl -fsS -o /dev/null -H 'Content-Type: application/json' -d "$body" "$API/api/auth/register"
+
+echo "== Baseline: GET /api/products (n=$CATALOG_REQUESTS c=$CATALOG_CONCURRENCY)"
+hey -n "$CATALOG_REQUESTS" -c "$CATALOG_CONCURRENCY" "$API/api/products"
+
+login_out=$(mktemp)
+trap 'rm -f "$login_out"' EXIT
+hey -n "$LOGIN_REQUESTS" -c "$LOGIN_CONCURRENCY" -m POST -T application/json -d "$body" \
+    "$API/api/auth/login" > "$login_out" &
+login_pid=$!
+sleep 1
+
+echo "== During login burst: GET /api/products (n=$CATALOG_REQUESTS c=$CATALOG_CONCURRENCY)"
+hey -n "$CATALOG_REQUESTS" -c "$CATALOG_CONCURRENCY" "$API/api/products"
+
+wait "$login_pid"
+echo "== Login burst (n=$LOGIN_REQUESTS c=$LOGIN_CONCURRENCY); 503s are shed logins"
+cat "$login_out"
@@ -0,0 +1,86 @@
+#!/usr/bin/env bash
+
+# scripts/uuid_insert_bench.sh
+# Compares random (v4) and time-ordered (v7) UUID primary keys on an orders-shaped table:
+# fills one table per key type with ROWS rows in batches, then prints the insert rate
+# and the primary key index size. Random keys land all over the index, splitting pages
+# half-full, so v4 typically ends with a larger pkey and a slower rate once it outgrows the cache.
+# Runs in a scratch schema (uuid_bench) that is dropped at the end unless KEEP=1.
+# Needs uuid_generate_v7() from db/init/008_uuid_v7.sql.
+#
+# Usage:
+#   1) docker-compose up -d db
+#   2) scripts/uuid_insert_bench.sh
+#
+# Configuration via env vars (plus standard PG env vars, as in db_dump.sh):
+#   ROWS (default: 5000000)    rows per table
+#   BATCH (default: 100000)    rows per INSERT statement
+#   KEEP (default: 0)          1 keeps the uuid_bench schema for inspection
+
+set -euo pipefail
+
+PGHOST="${PGHOST:-localhost}"
+PGPORT="${PGPORT:-5432}"
+PGDATABASE="${PGDATABASE:-isdstore}"
+PGUSER="${PGUSER:-postgres}"
+ROWS="${ROWS:-5000000}"
+BATCH="${BATCH:-100000}"
+KEEP="${KEEP:-0}"
+
+export PGPASSWORD="${PGPASSWORD:-postgres}"
+
+if ! command -v psql >/dev/null 2>&1; then
+    echo "Error: psql is not installed or not in PATH." >&2
+    exit 1
+fi
+
+PSQL=(psql --no-psqlrc -X -v ON_ERROR_STOP=1 -q -h "$PGHOST" -p "$PGPORT" -U "$PGUSER" -d "$PGDATABASE")
+
+if ! "${PSQL[@]}" -Atc "SELECT 'uuid_generate_v7()'::regprocedure;" >/dev/null 2>&1; then
+    echo "Error: uuid_generate_v7() not found; apply db/init/008_uuid_v7.sql first." >&2
+    exit 2
+fi
+
+"${PSQL[@]}" -c "
+    DROP SCHEMA IF EXISTS uuid_bench CASCADE;
+    CREATE SCHEMA uuid_bench;
+    CREATE TABLE uuid_bench.orders_v4 (
+        id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+        user_id UUID NOT NULL,
+        items JSONB NOT NULL,
+        total_cents INTEGER NOT NULL,
+        status TEXT NOT NULL DEFAULT 'completed',
+        created_at TIMESTAMPTZ NOT NULL DEFAULT NOW());
+    CREATE TABLE uuid_bench.orders_v7 (LIKE uuid_bench.orders_v4 INCLUDING ALL);
+    ALTER TABLE uuid_bench.orders_v7 ALTER COLUMN id SET DEFAULT uuid_generate_v7();"
+
+fill() {
+    local table="$1" done_rows=0 start end
+    start=$(date +%s%N)
+    while (( done_rows < ROWS )); do
+        local n=$(( ROWS - done_rows < BATCH ? ROWS - done_rows : BATCH ))
+        "${PSQL[@]}" -c "
+            INSERT INTO uuid_bench.${table} (user_id, items, total_cents)
+            SELECT gen_random_uuid(), '[{\"productId\":\"00000000-0000-0000-0000-000000000000\",\"quantity\":1}]', 1000
+            FROM generate_series(1, ${n});"
+        done_rows=$(( done_rows + n ))
+    done
+    end=$(date +%s%N)
+    echo $(( (end - start) / 1000000 ))
+}
+
+echo "Inserting ${ROWS} rows per table in batches of ${BATCH}..."
+printf "%-6s %12s %12s %12s %12s\n" "keys" "millis" "rows/sec" "pkey size" "heap size"
+for table in orders_v4 orders_v7; do
+    millis=$(fill "$table")
+    size=$("${PSQL[@]}" -Atc "SELECT pg_size_pretty(pg_relation_size('uuid_bench.${table}_pkey'));")
+    heap=$("${PSQL[@]}" -Atc "SELECT pg_size_pretty(pg_relation_size('uuid_bench.${table}'));")
+    printf "%-6s %12s %12s %12s %12s\n" "${table#orders_}" "$millis" "$(( ROWS * 1000 / (millis > 0 ? millis : 1) ))" "$size" "$heap"
+done
+
+if [[ "$KEEP" != "1" ]]; then
+    "${PSQL[@]}" -c "DROP SCHEMA uuid_bench CASCADE;"
+fi
+
+unset PGPASSWORD
+exit 0